@@ -2,6 +2,7 @@ plugins {
     java
     id("net.minecrell.plugin-yml.bukkit") version "0.6.0"
     id("com.github.johnrengelman.shadow") version "8.1.1"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "dev.jaqobb"
@@ -13,6 +14,15 @@ java {
     targetCompatibility = JavaVersion.VERSION_1_8
 }
 
+jmh {
+    jmhVersion.set("1.37")
+    benchmarkMode.set(listOf("thrpt"))
+    timeUnit.set("s")
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("reports/jmh/results.json"))
+}
+
 bukkit {
     name = "MessageEditor"
     main = "dev.jaqobb.message_editor.MessageEditorPlugin"
@@ -32,6 +42,9 @@ bukkit {
 }
 
 tasks {
+    test {
+        useJUnitPlatform()
+    }
     shadowJar {
         exclude("com/cryptomorin/xseries/messages/*")
         exclude("com/cryptomorin/xseries/particles/*")
@@ -89,4 +102,14 @@ dependencies {
     compileOnly("me.clip:placeholderapi:2.11.3")
     implementation("com.github.cryptomorin:XSeries:9.4.0")
     implementation("org.bstats:bstats-bukkit:3.0.2")
+    jmh("org.spigotmc:spigot-api:1.20.4-R0.1-SNAPSHOT")
+    jmh("net.kyori:adventure-platform-bukkit:4.3.0")
+    jmh("com.comphenix.protocol:ProtocolLib:5.2.0-SNAPSHOT")
+    jmh("me.clip:placeholderapi:2.11.3")
+    testImplementation("org.spigotmc:spigot-api:1.20.4-R0.1-SNAPSHOT")
+    testImplementation("net.kyori:adventure-platform-bukkit:4.3.0")
+    testImplementation("com.comphenix.protocol:ProtocolLib:5.2.0-SNAPSHOT")
+    testImplementation(platform("org.junit:junit-bom:5.10.1"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
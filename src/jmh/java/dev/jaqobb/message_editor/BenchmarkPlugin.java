@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor;
+
+import dev.jaqobb.message_editor.message.MessageEdit;
+import org.bukkit.Server;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.plugin.PluginDescriptionFile;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.java.JavaPluginLoader;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+// Loads the plugin the same way the server does, with a server that only provides what loading the plugin needs.
+public final class BenchmarkPlugin {
+
+    private BenchmarkPlugin() {
+        throw new UnsupportedOperationException("Cannot create instance of this class");
+    }
+
+    public static MessageEditorPlugin load(File directory, List<MessageEdit> edits) throws IOException {
+        // Metrics are disabled, and they are not relocated outside of the plugin jar.
+        System.setProperty("bstats.relocatecheck", "false");
+        YamlConfiguration metricsConfiguration = new YamlConfiguration();
+        metricsConfiguration.set("enabled", false);
+        metricsConfiguration.set("serverUuid", UUID.randomUUID().toString());
+        metricsConfiguration.save(new File(new File(directory, "bStats"), "config.yml"));
+        File dataFolder = new File(directory, "MessageEditor");
+        for (int index = 0; index < edits.size(); index += 1) {
+            YamlConfiguration editConfiguration = new YamlConfiguration();
+            for (Map.Entry<String, Object> entry : edits.get(index).serialize().entrySet()) {
+                editConfiguration.set(entry.getKey(), entry.getValue());
+            }
+            editConfiguration.save(new File(new File(dataFolder, "edits"), "benchmark-" + index + ".yml"));
+        }
+        Logger logger = Logger.getLogger("Benchmark");
+        PluginManager pluginManager = createStub(PluginManager.class, null);
+        Server server = createStub(Server.class, (name) -> name.equals("getLogger") ? logger : name.equals("getPluginManager") ? pluginManager : null);
+        PluginDescriptionFile description = new PluginDescriptionFile("MessageEditor", "benchmark", MessageEditorPlugin.class.getName());
+        MessageEditorPlugin plugin = new MessageEditorPlugin(new JavaPluginLoader(server), description, dataFolder, new File(directory, "MessageEditor.jar"));
+        plugin.onLoad();
+        return plugin;
+    }
+
+    private static <T> T createStub(Class<T> type, Function<String, Object> results) {
+        Object stub = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, arguments) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == arguments[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return type.getSimpleName();
+                }
+            }
+            Object result = results == null ? null : results.apply(method.getName());
+            Class<?> returnType = method.getReturnType();
+            if (result != null || !returnType.isPrimitive() || returnType == void.class) {
+                return result;
+            }
+            // Default value of the primitive type.
+            return Array.get(Array.newInstance(returnType, 1), 0);
+        });
+        return type.cast(stub);
+    }
+}
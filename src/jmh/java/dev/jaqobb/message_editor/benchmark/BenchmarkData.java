@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.benchmark;
+
+import dev.jaqobb.message_editor.message.MessageEdit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public final class BenchmarkData {
+
+    private static final String[] NAMES = {"jaqobb", "Notch", "jeb_", "Dinnerbone", "Grumm"};
+
+    private BenchmarkData() {
+        throw new UnsupportedOperationException("Cannot create instance of this class");
+    }
+
+    // Edits resembling the ones shipped by default and the ones created using message editor menu.
+    public static List<MessageEdit> createEdits(int count) {
+        List<MessageEdit> edits = new ArrayList<>(count);
+        for (int index = 0; index < count; index += 1) {
+            switch (index % 4) {
+                case 0:
+                    edits.add(new MessageEdit("\\{\"extra\":\\[\\{\"text\":\"Checking version " + index + "\\, please wait\\.\\.\\.\"\\}\\]\\,\"text\":\"\"\\}", null, "§e§l> §7Checking version, please wait...", null));
+                    break;
+                case 1:
+                    edits.add(new MessageEdit("\\{\"extra\":\\[\\{\"color\":\"yellow\",\"text\":\"([a-zA-Z0-9_]{1,16}) joined the game " + index + "\"\\}\\],\"text\":\"\"\\}", null, "§x§4§6§b§4§5§f$1 §fjoined the game", null));
+                    break;
+                case 2:
+                    edits.add(new MessageEdit("§aWelcome to the server number " + index + ", (.*)!", null, "§7Welcome, §e$1§7!", null));
+                    break;
+                default:
+                    edits.add(new MessageEdit("§7Coins: §e([0-9]+) §8\\| §7Line " + index, null, "§7Balance: §6$1", null));
+                    break;
+            }
+        }
+        return edits;
+    }
+
+    // Roughly one in ten messages matches an edit, the rest are messages no edit cares about.
+    public static String[] createMessages(int count, int editCount) {
+        Random random = new Random(count * 31L + editCount);
+        String[] messages = new String[count];
+        for (int index = 0; index < count; index += 1) {
+            String name = NAMES[random.nextInt(NAMES.length)];
+            int edit = random.nextInt(Math.max(editCount, 1));
+            if (random.nextInt(10) == 0) {
+                switch (edit % 4) {
+                    case 0:
+                        messages[index] = "{\"extra\":[{\"text\":\"Checking version " + edit + ", please wait...\"}],\"text\":\"\"}";
+                        break;
+                    case 1:
+                        messages[index] = "{\"extra\":[{\"color\":\"yellow\",\"text\":\"" + name + " joined the game " + edit + "\"}],\"text\":\"\"}";
+                        break;
+                    case 2:
+                        messages[index] = "§aWelcome to the server number " + edit + ", " + name + "!";
+                        break;
+                    default:
+                        messages[index] = "§7Coins: §e" + random.nextInt(100000) + " §8| §7Line " + edit;
+                        break;
+                }
+            } else {
+                switch (random.nextInt(3)) {
+                    case 0:
+                        messages[index] = "{\"extra\":[{\"color\":\"gray\",\"text\":\"" + name + ": \"},{\"text\":\"hello there number " + random.nextInt(1000) + "\"}],\"text\":\"\"}";
+                        break;
+                    case 1:
+                        messages[index] = "§7Online: §a" + random.nextInt(500) + " §8| §7Rank: §6" + name;
+                        break;
+                    default:
+                        messages[index] = "§b" + name + " §7has §e" + random.nextInt(1000) + " §7kills";
+                        break;
+                }
+            }
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.benchmark;
+
+import dev.jaqobb.message_editor.message.MessageEdit;
+import dev.jaqobb.message_editor.message.MessageEditLookup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MessageEditLookupBenchmark {
+
+    @Param({"10", "100", "800"})
+    private int editCount;
+
+    private MessageEdit[] edits;
+    private MessageEditLookup lookup;
+    private MessageEditLookup cachingLookup;
+    private String[] messages;
+    private int messageIndex;
+
+    @Setup
+    public void setUp() {
+        List<MessageEdit> edits = BenchmarkData.createEdits(this.editCount);
+        this.edits = edits.toArray(new MessageEdit[0]);
+        this.lookup = new MessageEditLookup(this.edits, 0L);
+        this.cachingLookup = new MessageEditLookup(this.edits, 10000L);
+        this.messages = BenchmarkData.createMessages(1024, this.editCount);
+    }
+
+    private String nextMessage() {
+        String message = this.messages[this.messageIndex];
+        this.messageIndex = (this.messageIndex + 1) & (this.messages.length - 1);
+        return message;
+    }
+
+    // Matching every edit one after another, which is what listeners used to do.
+    @Benchmark
+    public Matcher linearScan() {
+        String message = this.nextMessage();
+        for (MessageEdit edit : this.edits) {
+            Matcher matcher = edit.getMatcher(message);
+            if (matcher != null) {
+                return matcher;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Map.Entry<MessageEdit, Matcher> lookup() {
+        return this.lookup.find(this.nextMessage());
+    }
+
+    @Benchmark
+    public Map.Entry<MessageEdit, Matcher> lookupWithUnmatchedMessagesCache() {
+        return this.cachingLookup.find(this.nextMessage());
+    }
+}
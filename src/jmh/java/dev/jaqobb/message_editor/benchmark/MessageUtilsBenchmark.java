@@ -0,0 +1,203 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.benchmark;
+
+import com.comphenix.protocol.utility.MinecraftVersion;
+import com.google.gson.JsonParseException;
+import com.google.gson.internal.Streams;
+import com.google.gson.stream.JsonReader;
+import dev.jaqobb.message_editor.util.MessageUtils;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.StringReader;
+import java.util.List;
+
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MessageUtilsBenchmark {
+
+    private static final String SHORT_MESSAGE = "§aWelcome to the server, §ejaqobb§a!";
+    private static final String LONG_MESSAGE;
+
+    static {
+        StringBuilder message = new StringBuilder();
+        for (int index = 0; index < 40; index += 1) {
+            message.append("§x§4§6§b§4§5§f§lLine ").append(index).append(" §7of the message of the day §8| §r§eplay.example.com\\n");
+        }
+        LONG_MESSAGE = message.toString();
+    }
+
+    private static final String JSON_MESSAGE = "{\"extra\":[{\"bold\":false,\"italic\":false,\"underlined\":false,\"strikethrough\":false,\"obfuscated\":false,\"color\":\"yellow\",\"text\":\"jaqobb joined the game\"}],\"text\":\"\"}";
+
+    @Param({"short", "long"})
+    private String length;
+
+    private String message;
+    private BaseComponent[] components;
+
+    @Setup
+    public void setUp() {
+        // Message places check the server version which is not available outside of the server.
+        MinecraftVersion.setCurrentVersion(MinecraftVersion.v1_20_4);
+        this.message = this.length.equals("short") ? SHORT_MESSAGE : LONG_MESSAGE;
+        this.components = MessageUtils.toBaseComponents(this.message);
+    }
+
+    @Benchmark
+    public boolean isJson() {
+        return MessageUtils.isJson(JSON_MESSAGE) & MessageUtils.isJson(this.message);
+    }
+
+    // How JSON messages used to be detected.
+    @Benchmark
+    public boolean isJsonGson() {
+        return isJsonParsed(JSON_MESSAGE) & isJsonParsed(this.message);
+    }
+
+    @Benchmark
+    public BaseComponent[] toBaseComponents() {
+        return MessageUtils.toBaseComponents(this.message);
+    }
+
+    // How legacy text used to be converted to components.
+    @Benchmark
+    public BaseComponent[] toBaseComponentsQuadratic() {
+        return toBaseComponentsQuadratic(this.message);
+    }
+
+    @Benchmark
+    public String toJson() {
+        return MessageUtils.toJson(this.components, true);
+    }
+
+    @Benchmark
+    public String toBaseComponentsToJson() {
+        return MessageUtils.toJson(MessageUtils.toBaseComponents(this.message), true);
+    }
+
+    @Benchmark
+    public String legacyToJson() {
+        return MessageUtils.legacyToJson(this.message);
+    }
+
+    @Benchmark
+    public String getLastColors() {
+        return MessageUtils.getLastColors(this.message);
+    }
+
+    @Benchmark
+    public List<String> splitMessage() {
+        return MessageUtils.splitMessage(this.message, false);
+    }
+
+    private static boolean isJsonParsed(String message) {
+        try {
+            Streams.parse(new JsonReader(new StringReader(message)));
+            return true;
+        } catch (JsonParseException exception) {
+            return false;
+        }
+    }
+
+    private static BaseComponent[] toBaseComponentsQuadratic(String message) {
+        TextComponent finalComponent = new TextComponent();
+        TextComponent component = new TextComponent();
+        ChatColor componentNewColor = null;
+        boolean firstColor = true;
+        for (int index = 0; index < message.length(); index += 1) {
+            boolean makeComponent = false;
+            char character = message.charAt(index);
+            if (index == message.length() - 1) {
+                makeComponent = true;
+                component.setText(component.getText() + character);
+            } else if (character != '§') {
+                component.setText(component.getText() + character);
+            } else {
+                char hexColorCharacter = message.charAt(index + 1);
+                if ((hexColorCharacter == 'x' || hexColorCharacter == 'X') && MessageUtils.HEX_COLORS_SUPPORTED) {
+                    String hexColor = "";
+                    for (int j = 3; j <= 13; j += 2) {
+                        hexColor += message.charAt(index + j);
+                    }
+                    try {
+                        index += 13;
+                        component.setColor(ChatColor.of("#" + hexColor));
+                        firstColor = false;
+                        continue;
+                    } catch (IllegalArgumentException ignored) {
+                    }
+                }
+                ChatColor color = ChatColor.getByChar(message.charAt(index + 1));
+                if (color != null) {
+                    index += 1;
+                    if ((color != component.getColor() && firstColor) || color == ChatColor.MAGIC || color == ChatColor.BOLD || color == ChatColor.STRIKETHROUGH || color == ChatColor.UNDERLINE || color == ChatColor.ITALIC) {
+                        if (color == ChatColor.MAGIC) {
+                            component.setObfuscated(true);
+                        } else if (color == ChatColor.BOLD) {
+                            component.setBold(true);
+                        } else if (color == ChatColor.STRIKETHROUGH) {
+                            component.setStrikethrough(true);
+                        } else if (color == ChatColor.UNDERLINE) {
+                            component.setUnderlined(true);
+                        } else if (color == ChatColor.ITALIC) {
+                            component.setItalic(true);
+                        } else {
+                            component.setColor(color);
+                            firstColor = false;
+                        }
+                    } else {
+                        makeComponent = true;
+                        componentNewColor = color;
+                    }
+                } else {
+                    component.setText(component.getText() + character);
+                }
+            }
+            if (makeComponent) {
+                finalComponent.addExtra(component);
+                component = new TextComponent();
+                if (componentNewColor != null) {
+                    component.setColor(componentNewColor);
+                    componentNewColor = null;
+                    firstColor = false;
+                } else {
+                    firstColor = true;
+                }
+            }
+        }
+        return new BaseComponent[] {finalComponent};
+    }
+}
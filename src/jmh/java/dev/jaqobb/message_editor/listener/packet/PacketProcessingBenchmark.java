@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.listener.packet;
+
+import com.comphenix.protocol.utility.MinecraftVersion;
+import dev.jaqobb.message_editor.BenchmarkPlugin;
+import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.benchmark.BenchmarkData;
+import dev.jaqobb.message_editor.message.MessagePlace;
+import dev.jaqobb.message_editor.util.MessageUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Goes through the common packet listener the same way it handles every outgoing message.
+// Packets themselves are left out as creating them requires a running server.
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PacketProcessingBenchmark {
+
+    @Param({"10", "100", "800"})
+    private int editCount;
+
+    private Path directory;
+    private MessageEditorPlugin plugin;
+    private CommonPacketListener listener;
+    private String[] messages;
+    private int messageIndex;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Message places check the server version which is not available outside of the server.
+        MinecraftVersion.setCurrentVersion(MinecraftVersion.v1_20_4);
+        this.directory = Files.createTempDirectory("message-editor-benchmark");
+        this.plugin = BenchmarkPlugin.load(this.directory.toFile(), BenchmarkData.createEdits(this.editCount));
+        this.listener = new CommonPacketListener(this.plugin, MessagePlace.SYSTEM_CHAT);
+        this.messages = BenchmarkData.createMessages(1024, this.editCount);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.plugin.onDisable();
+        try (Stream<Path> paths = Files.walk(this.directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public String processMessage() {
+        String originalMessage = this.messages[this.messageIndex];
+        this.messageIndex = (this.messageIndex + 1) & (this.messages.length - 1);
+        String message = this.listener.editMessage(null, originalMessage);
+        boolean json = MessageUtils.isJson(message);
+        this.listener.captureMessageData(null, message, json);
+        if (message.equals(originalMessage)) {
+            return null;
+        }
+        return json ? message : MessageUtils.legacyToJson(message);
+    }
+}
@@ -29,6 +29,8 @@ import com.comphenix.protocol.ProtocolManager;
 import com.comphenix.protocol.utility.MinecraftVersion;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
 import dev.jaqobb.message_editor.command.MessageEditorCommand;
 import dev.jaqobb.message_editor.command.MessageEditorCommandTabCompleter;
 import dev.jaqobb.message_editor.listener.packet.BossBarPacketListener;
@@ -38,8 +40,11 @@ import dev.jaqobb.message_editor.listener.packet.EntityNamePacketListener;
 import dev.jaqobb.message_editor.listener.packet.InventoryItemsPacketListener;
 import dev.jaqobb.message_editor.listener.packet.InventoryTitlePacketListener;
 import dev.jaqobb.message_editor.listener.packet.KickPacketListener;
+import dev.jaqobb.message_editor.listener.packet.PlayerListNamePacketListener;
 import dev.jaqobb.message_editor.listener.packet.ScoreboardEntryPacketListener;
+import dev.jaqobb.message_editor.listener.packet.ScoreboardTeamPacketListener;
 import dev.jaqobb.message_editor.listener.packet.ScoreboardTitlePacketListener;
+import dev.jaqobb.message_editor.listener.packet.TabListPacketListener;
 import dev.jaqobb.message_editor.listener.player.PlayerChatListener;
 import dev.jaqobb.message_editor.listener.player.PlayerInventoryClickListener;
 import dev.jaqobb.message_editor.listener.player.PlayerInventoryCloseListener;
@@ -49,31 +54,53 @@ import dev.jaqobb.message_editor.listener.player.PlayerQuitListener;
 import dev.jaqobb.message_editor.listener.plugin.PluginDisableListener;
 import dev.jaqobb.message_editor.listener.plugin.PluginEnableListener;
 import dev.jaqobb.message_editor.menu.MenuManager;
+import dev.jaqobb.message_editor.message.CachedComponentMessage;
+import dev.jaqobb.message_editor.message.CachedScoreboardEntry;
+import dev.jaqobb.message_editor.message.EditSnapshot;
+import dev.jaqobb.message_editor.message.ItemMessages;
 import dev.jaqobb.message_editor.message.MessageData;
 import dev.jaqobb.message_editor.message.MessageEdit;
 import dev.jaqobb.message_editor.message.MessageEditData;
+import dev.jaqobb.message_editor.message.MessageEditIndex;
+import dev.jaqobb.message_editor.message.MessageEditLookup;
 import dev.jaqobb.message_editor.message.MessagePlace;
 import dev.jaqobb.message_editor.updater.Updater;
+import dev.jaqobb.message_editor.util.MessageIdGenerator;
+import dev.jaqobb.message_editor.util.MessageUtils;
+import dev.jaqobb.message_editor.watcher.EditWatcher;
+import me.clip.placeholderapi.PlaceholderAPI;
 import org.bstats.bukkit.Metrics;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.PluginDescriptionFile;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.java.JavaPluginLoader;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.util.AbstractMap;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.logging.Level;
@@ -88,13 +115,39 @@ public final class MessageEditorPlugin extends JavaPlugin {
     private Metrics metrics;
     private boolean updateNotify;
     private Updater updater;
-    private List<MessageEdit> messageEdits;
+    private EditWatcher editWatcher;
+    // Read by packet listeners on Netty threads, so it is only ever replaced, never modified.
+    private volatile EditSnapshot editSnapshot;
+    // Only accessed while holding the plugin lock, like the edits themselves.
+    private long startedMessageEditsReloads;
+    private long publishedMessageEditsReload;
+    private Map<String, Map.Entry<Long, MessageEdit>> changedFileEditsDuringReloads;
     private boolean attachSpecialHoverAndClickEvents;
     private boolean placeholderApiPresent;
     private MenuManager menuManager;
     private Cache<String, Map.Entry<MessageEdit, String>> cachedMessages;
+    private Map<MessageEdit, Set<String>> cachedMessagesByEdit;
+    private Cache<Map.Entry<UUID, String>, String> cachedPlayerMessages;
+    private Cache<Map.Entry<String, List<String>>, ItemMessages> cachedItemMessages;
+    private Cache<String, String> cachedLoreLines;
     private Cache<String, MessageData> cachedMessagesData;
+    private boolean captureMessageDataOnDemand;
+    private LongAdder skippedMessageDataCaptures;
     private Map<UUID, MessageEditData> currentMessageEditsData;
+    private Map<UUID, Map<Integer, CachedComponentMessage>> cachedEntityNames;
+    private Map<UUID, Map<UUID, CachedComponentMessage>> cachedBossBarTitles;
+    private Map<UUID, Map<Map.Entry<MessagePlace, String>, CachedComponentMessage>> cachedComponentMessages;
+    private Map<UUID, Map<Map.Entry<String, String>, CachedScoreboardEntry>> cachedScoreboardEntries;
+    private boolean suppressDuplicateScoreboardEntries;
+    private Map<UUID, Map<Map.Entry<MessagePlace, String>, Map.Entry<String, String>>> cachedScoreboardTeamMessages;
+
+    public MessageEditorPlugin() {
+    }
+
+    // Used to create the plugin outside of the server (benchmarks).
+    MessageEditorPlugin(JavaPluginLoader loader, PluginDescriptionFile description, File dataFolder, File file) {
+        super(loader, description, dataFolder, file);
+    }
 
     @Override
     public void onLoad() {
@@ -114,19 +167,28 @@ public final class MessageEditorPlugin extends JavaPlugin {
         }
         this.getLogger().log(Level.INFO, "Starting metrics...");
         this.metrics = new Metrics(this, 8376);
-        this.getLogger().log(Level.INFO, "Loading configuration...");
-        this.saveDefaultConfig();
-        this.reloadConfig();
-        PluginManager pluginManager = this.getServer().getPluginManager();
-        this.placeholderApiPresent = pluginManager.getPlugin("PlaceholderAPI") != null;
-        this.getLogger().log(Level.INFO, "PlaceholderAPI: " + (this.placeholderApiPresent ? "found" : "not found") + ".");
+        this.changedFileEditsDuringReloads = new LinkedHashMap<>();
+        this.cachedMessagesByEdit = new ConcurrentHashMap<>();
         this.cachedMessages = CacheBuilder.newBuilder()
             .expireAfterAccess(15L, TimeUnit.MINUTES)
+            .<String, Map.Entry<MessageEdit, String>>removalListener(this::onCachedMessageRemoval)
             .build();
         this.cachedMessagesData = CacheBuilder.newBuilder()
             .expireAfterAccess(15L, TimeUnit.MINUTES)
             .build();
+        this.skippedMessageDataCaptures = new LongAdder();
         this.currentMessageEditsData = new HashMap<>();
+        this.cachedEntityNames = new ConcurrentHashMap<>();
+        this.cachedBossBarTitles = new ConcurrentHashMap<>();
+        this.cachedComponentMessages = new ConcurrentHashMap<>();
+        this.cachedScoreboardEntries = new ConcurrentHashMap<>();
+        this.cachedScoreboardTeamMessages = new ConcurrentHashMap<>();
+        this.getLogger().log(Level.INFO, "Loading configuration...");
+        this.saveDefaultConfig();
+        this.reloadConfig();
+        PluginManager pluginManager = this.getServer().getPluginManager();
+        this.placeholderApiPresent = pluginManager.getPlugin("PlaceholderAPI") != null;
+        this.getLogger().log(Level.INFO, "PlaceholderAPI: " + (this.placeholderApiPresent ? "found" : "not found") + ".");
     }
 
     @Override
@@ -169,6 +231,18 @@ public final class MessageEditorPlugin extends JavaPlugin {
         if (this.getConfig().getBoolean("packet-listeners.scoreboard-entry", true)) {
             protocolManager.addPacketListener(new ScoreboardEntryPacketListener(this));
         }
+        if (this.getConfig().getBoolean("packet-listeners.scoreboard-team", true)) {
+            protocolManager.addPacketListener(new ScoreboardTeamPacketListener(this, MessagePlace.SCOREBOARD_TEAM_DISPLAY_NAME));
+            protocolManager.addPacketListener(new ScoreboardTeamPacketListener(this, MessagePlace.SCOREBOARD_TEAM_PREFIX));
+            protocolManager.addPacketListener(new ScoreboardTeamPacketListener(this, MessagePlace.SCOREBOARD_TEAM_SUFFIX));
+        }
+        if (this.getConfig().getBoolean("packet-listeners.tab-list", true)) {
+            protocolManager.addPacketListener(new TabListPacketListener(this, MessagePlace.TAB_LIST_HEADER));
+            protocolManager.addPacketListener(new TabListPacketListener(this, MessagePlace.TAB_LIST_FOOTER));
+        }
+        if (this.getConfig().getBoolean("packet-listeners.player-list-name", true)) {
+            protocolManager.addPacketListener(new PlayerListNamePacketListener(this));
+        }
         if (this.getConfig().getBoolean("packet-listeners.inventory-title", true)) {
             protocolManager.addPacketListener(new InventoryTitlePacketListener(this));
         }
@@ -178,20 +252,83 @@ public final class MessageEditorPlugin extends JavaPlugin {
         if (this.getConfig().getBoolean("packet-listeners.entity-name", true)) {
             protocolManager.addPacketListener(new EntityNamePacketListener(this));
         }
+        if (this.getConfig().getBoolean("watch-edits", false)) {
+            this.getLogger().log(Level.INFO, "Starting edit watcher...");
+            try {
+                this.editWatcher = new EditWatcher(this, new File(this.getDataFolder(), "edits"));
+                this.editWatcher.start();
+            } catch (IOException exception) {
+                this.getLogger().log(Level.WARNING, "Could not start edit watcher.", exception);
+            }
+        }
+    }
+
+    @Override
+    public void onDisable() {
+        if (this.editWatcher != null) {
+            this.editWatcher.stop();
+            this.editWatcher = null;
+        }
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void reloadConfig() {
+        this.reloadSettings();
+        this.reloadMessageEdits().join();
+    }
+
+    public void reloadSettings() {
         super.reloadConfig();
         this.updateNotify = this.getConfig().getBoolean("update.notify", true);
         this.attachSpecialHoverAndClickEvents = this.getConfig().getBoolean("attach-special-hover-and-click-events", true);
-        this.messageEdits = (List<MessageEdit>) this.getConfig().getList("message-edits");
+        this.captureMessageDataOnDemand = this.getConfig().getBoolean("capture-message-data-on-demand", true);
+        this.suppressDuplicateScoreboardEntries = this.getConfig().getBoolean("suppress-duplicate-scoreboard-entries", false);
+        String idGeneratorName = this.getConfig().getString("message-id-generator", "random");
+        MessageIdGenerator idGenerator = MessageIdGenerator.fromName(idGeneratorName);
+        if (idGenerator == null) {
+            this.getLogger().log(Level.WARNING, "Unknown message id generator '" + idGeneratorName + "', using 'random' instead.");
+            idGenerator = MessageIdGenerator.RANDOM;
+        }
+        MessageUtils.setIdGenerator(idGenerator);
+        if (this.getConfig().getBoolean("cache.player-messages.enabled", true)) {
+            this.cachedPlayerMessages = CacheBuilder.newBuilder()
+                .expireAfterWrite(this.getConfig().getLong("cache.player-messages.expire-after", 5L), TimeUnit.SECONDS)
+                .maximumSize(Math.max(this.getConfig().getLong("cache.player-messages.maximum-size", 10000L), 0L))
+                .build();
+        } else {
+            this.cachedPlayerMessages = null;
+        }
+        long itemMessagesCacheSize = this.getConfig().getLong("cache.item-messages.maximum-size", 1000L);
+        if (itemMessagesCacheSize > 0L) {
+            this.cachedItemMessages = CacheBuilder.newBuilder()
+                .maximumSize(itemMessagesCacheSize)
+                .build();
+        } else {
+            this.cachedItemMessages = null;
+        }
+        long loreLinesCacheSize = this.getConfig().getLong("cache.lore-lines.maximum-size", 10000L);
+        if (loreLinesCacheSize > 0L) {
+            this.cachedLoreLines = CacheBuilder.newBuilder()
+                .maximumSize(loreLinesCacheSize)
+                .build();
+        } else {
+            this.cachedLoreLines = null;
+        }
+    }
+
+    // Edit files are parsed (and their patterns compiled) on worker threads. The new edits replace
+    // the old ones all at once after every file has been loaded, so packets sent in the meantime
+    // keep using the old edits.
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Void> reloadMessageEdits() {
+        long reload = this.startMessageEditsReload();
+        List<MessageEdit> configEdits = (List<MessageEdit>) this.getConfig().getList("message-edits", new ArrayList<>());
         File editsDirectory = new File(this.getDataFolder(), "edits");
         if (!editsDirectory.exists()) {
             if (!editsDirectory.mkdir()) {
                 this.getLogger().log(Level.WARNING, "Could not create 'edits' directory.");
-                return;
+                this.publishMessageEdits(reload, configEdits, Collections.emptyMap());
+                return CompletableFuture.completedFuture(null);
             }
             List<String> resources = new ArrayList<>();
             URL resourceDirectory = this.getClassLoader().getResource("edits");
@@ -223,19 +360,201 @@ public final class MessageEditorPlugin extends JavaPlugin {
                 this.saveResource(resource, false);
             }
         }
-        for (File editFile : editsDirectory.listFiles()) {
-            String name = editFile.getName();
-            if (!name.isEmpty() && name.charAt(0) == '#') {
-                continue;
+        List<File> editFiles = new ArrayList<>();
+        File[] files = editsDirectory.listFiles();
+        if (files != null) {
+            for (File editFile : files) {
+                if (isMessageEditFile(editFile.getName())) {
+                    editFiles.add(editFile);
+                }
             }
-            if (!name.endsWith(".yml")) {
-                continue;
+        }
+        if (editFiles.isEmpty()) {
+            this.publishMessageEdits(reload, configEdits, Collections.emptyMap());
+            return CompletableFuture.completedFuture(null);
+        }
+        File indexFile = new File(this.getDataFolder(), "edits.index");
+        boolean indexEnabled = this.getConfig().getBoolean("cache.edit-index.enabled", true);
+        MessageEditIndex index = MessageEditIndex.EMPTY;
+        if (indexEnabled) {
+            try {
+                index = MessageEditIndex.read(indexFile);
+            } catch (IOException exception) {
+                this.getLogger().log(Level.WARNING, "Could not read message edit index, all edit files will be parsed.", exception);
             }
+        }
+        MessageEditIndex currentIndex = index;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(editFiles.size(), Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "MessageEditor Edit Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<CompletableFuture<MessageEditIndex.Entry>> futures = new ArrayList<>(editFiles.size());
+        for (File editFile : editFiles) {
+            futures.add(CompletableFuture.supplyAsync(() -> this.loadMessageEdit(currentIndex, editFile), executor));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+            .thenRun(() -> {
+                // Edits keep the order of their files no matter which one finished loading first.
+                Map<String, MessageEdit> fileEdits = new LinkedHashMap<>();
+                Map<String, MessageEditIndex.Entry> indexEntries = new LinkedHashMap<>();
+                for (int fileIndex = 0; fileIndex < editFiles.size(); fileIndex += 1) {
+                    MessageEditIndex.Entry entry = futures.get(fileIndex).join();
+                    if (entry != null) {
+                        String name = editFiles.get(fileIndex).getName();
+                        fileEdits.put(name, entry.getEdit());
+                        indexEntries.put(name, entry);
+                    }
+                }
+                this.publishMessageEdits(reload, configEdits, fileEdits);
+                if (indexEnabled) {
+                    try {
+                        new MessageEditIndex(indexEntries).write(indexFile);
+                    } catch (IOException exception) {
+                        this.getLogger().log(Level.WARNING, "Could not write message edit index.", exception);
+                    }
+                }
+            })
+            .whenComplete((ignored, throwable) -> executor.shutdown());
+    }
+
+    public static boolean isMessageEditFile(String name) {
+        return !name.isEmpty() && name.charAt(0) != '#' && name.endsWith(".yml");
+    }
+
+    // Modification time and size are read before the file itself, so a file that changes
+    // while being loaded is never indexed as up to date.
+    private MessageEditIndex.Entry loadMessageEdit(MessageEditIndex index, File editFile) {
+        long lastModified = editFile.lastModified();
+        long length = editFile.length();
+        MessageEdit edit = index.getEdit(editFile.getName(), lastModified, length);
+        if (edit == null) {
+            edit = this.loadMessageEdit(editFile);
+        }
+        return edit == null ? null : new MessageEditIndex.Entry(lastModified, length, edit);
+    }
+
+    public MessageEdit loadMessageEdit(File editFile) {
+        try {
             FileConfiguration configuration = YamlConfiguration.loadConfiguration(editFile);
-            this.messageEdits.add(MessageEdit.deserialize(configuration.getRoot().getValues(false)));
+            return MessageEdit.deserialize(configuration.getRoot().getValues(false));
+        } catch (RuntimeException exception) {
+            this.getLogger().log(Level.WARNING, "Could not load message edit from '" + editFile.getName() + "' file.", exception);
+            return null;
         }
     }
 
+    private synchronized long startMessageEditsReload() {
+        this.startedMessageEditsReloads += 1L;
+        return this.startedMessageEditsReloads;
+    }
+
+    // Reloads can overlap (reload command, edit watcher, startup) and finish in any order. Results of a reload
+    // that started before the last published one are dropped, and files changed by the edit watcher or the editor
+    // menu after the reload started are applied on top of what the reload has read, as they may have been read
+    // before they changed.
+    private synchronized void publishMessageEdits(long reload, List<MessageEdit> configEdits, Map<String, MessageEdit> fileEdits) {
+        if (reload < this.publishedMessageEditsReload) {
+            return;
+        }
+        this.publishedMessageEditsReload = reload;
+        Map<String, MessageEdit> newFileEdits = new LinkedHashMap<>(fileEdits);
+        for (Map.Entry<String, Map.Entry<Long, MessageEdit>> entry : this.changedFileEditsDuringReloads.entrySet()) {
+            Map.Entry<Long, MessageEdit> change = entry.getValue();
+            if (change.getKey() < reload) {
+                continue;
+            }
+            if (change.getValue() == null) {
+                newFileEdits.remove(entry.getKey());
+            } else {
+                newFileEdits.put(entry.getKey(), change.getValue());
+            }
+        }
+        // Changes made before this reload started can no longer be overwritten by any reload that is still running.
+        this.changedFileEditsDuringReloads.values().removeIf(change -> change.getKey() < reload);
+        this.setMessageEdits(configEdits, newFileEdits);
+    }
+
+    private void rememberChangedFileEdit(String fileName, MessageEdit edit) {
+        if (this.startedMessageEditsReloads > this.publishedMessageEditsReload) {
+            this.changedFileEditsDuringReloads.put(fileName, new AbstractMap.SimpleImmutableEntry<>(this.startedMessageEditsReloads, edit));
+        }
+    }
+
+    // Edits can be published by reloads (worker threads), the edit watcher and the editor menu (main thread)
+    // at the same time, so building the next snapshot from the current one is done under a lock.
+    // Edits that did not change keep their instances, so messages they have edited stay cached.
+    private synchronized void setMessageEdits(List<MessageEdit> configEdits, Map<String, MessageEdit> fileEdits) {
+        long unmatchedMessagesCacheSize = this.getConfig().getLong("cache.unmatched-messages.maximum-size", 10000L);
+        EditSnapshot snapshot = this.editSnapshot;
+        if (snapshot == null) {
+            this.editSnapshot = EditSnapshot.create(0L, configEdits, fileEdits, unmatchedMessagesCacheSize);
+            return;
+        }
+        Set<MessageEdit> keptEdits = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<MessageEdit> addedEdits = new ArrayList<>();
+        List<MessageEdit> oldConfigEdits = snapshot.getConfigEdits();
+        List<MessageEdit> newConfigEdits = new ArrayList<>(configEdits.size());
+        for (int index = 0; index < configEdits.size(); index += 1) {
+            MessageEdit oldEdit = index < oldConfigEdits.size() ? oldConfigEdits.get(index) : null;
+            newConfigEdits.add(keepMessageEdit(oldEdit, configEdits.get(index), keptEdits, addedEdits));
+        }
+        Map<String, MessageEdit> newFileEdits = new LinkedHashMap<>();
+        for (Map.Entry<String, MessageEdit> entry : fileEdits.entrySet()) {
+            MessageEdit oldEdit = snapshot.getFileEdits().get(entry.getKey());
+            newFileEdits.put(entry.getKey(), keepMessageEdit(oldEdit, entry.getValue(), keptEdits, addedEdits));
+        }
+        List<MessageEdit> removedEdits = new ArrayList<>();
+        for (MessageEdit edit : snapshot.getEdits()) {
+            if (!keptEdits.contains(edit)) {
+                removedEdits.add(edit);
+            }
+        }
+        if (removedEdits.isEmpty() && addedEdits.isEmpty()) {
+            return;
+        }
+        EditSnapshot nextSnapshot = snapshot.next(newConfigEdits, newFileEdits, addedEdits, unmatchedMessagesCacheSize);
+        this.editSnapshot = nextSnapshot;
+        this.invalidateCachedMessages(nextSnapshot, removedEdits, addedEdits);
+    }
+
+    private static MessageEdit keepMessageEdit(MessageEdit oldEdit, MessageEdit edit, Set<MessageEdit> keptEdits, List<MessageEdit> addedEdits) {
+        if (oldEdit != null && !keptEdits.contains(oldEdit) && isSameMessageEdit(oldEdit, edit)) {
+            keptEdits.add(oldEdit);
+            return oldEdit;
+        }
+        addedEdits.add(edit);
+        return edit;
+    }
+
+    private static boolean isSameMessageEdit(MessageEdit edit, MessageEdit otherEdit) {
+        return edit.getMessageBefore().equals(otherEdit.getMessageBefore())
+            && edit.getMessageBeforePlace() == otherEdit.getMessageBeforePlace()
+            && Objects.equals(edit.getMessageAfter(), otherEdit.getMessageAfter())
+            && edit.getMessageAfterPlace() == otherEdit.getMessageAfterPlace();
+    }
+
+    // Applies edits of files that were created, modified (non-null edit) or deleted (null edit) since they were loaded.
+    // Returns the amount of files whose edits have changed.
+    public synchronized int updateMessageEdits(Map<String, MessageEdit> changedFileEdits) {
+        EditSnapshot snapshot = this.editSnapshot;
+        Map<String, MessageEdit> fileEdits = new LinkedHashMap<>(snapshot.getFileEdits());
+        int changedFiles = 0;
+        for (Map.Entry<String, MessageEdit> entry : changedFileEdits.entrySet()) {
+            MessageEdit edit = entry.getValue();
+            MessageEdit oldEdit = edit == null ? fileEdits.remove(entry.getKey()) : fileEdits.put(entry.getKey(), edit);
+            this.rememberChangedFileEdit(entry.getKey(), edit);
+            if (edit == null ? oldEdit != null : oldEdit == null || !isSameMessageEdit(oldEdit, edit)) {
+                changedFiles += 1;
+            }
+        }
+        if (changedFiles == 0) {
+            return 0;
+        }
+        this.setMessageEdits(snapshot.getConfigEdits(), fileEdits);
+        return changedFiles;
+    }
+
     public Metrics getMetrics() {
         return this.metrics;
     }
@@ -248,12 +567,27 @@ public final class MessageEditorPlugin extends JavaPlugin {
         return this.updater;
     }
 
+    public EditSnapshot getEditSnapshot() {
+        return this.editSnapshot;
+    }
+
     public List<MessageEdit> getMessageEdits() {
-        return Collections.unmodifiableList(this.messageEdits);
+        return this.editSnapshot.getEdits();
     }
 
-    public void addMessageEdit(MessageEdit messageEdit) {
-        this.messageEdits.add(messageEdit);
+    public MessageEdit[] getMessageEdits(MessagePlace place) {
+        return this.editSnapshot.getEdits(place);
+    }
+
+    public MessageEditLookup getMessageEditLookup(MessagePlace place) {
+        return this.editSnapshot.getLookup(place);
+    }
+
+    public synchronized void addMessageEdit(String fileName, MessageEdit messageEdit) {
+        Map<String, MessageEdit> fileEdits = new LinkedHashMap<>(this.editSnapshot.getFileEdits());
+        fileEdits.put(fileName, messageEdit);
+        this.rememberChangedFileEdit(fileName, messageEdit);
+        this.setMessageEdits(this.editSnapshot.getConfigEdits(), fileEdits);
     }
 
     public boolean isAttachSpecialHoverAndClickEvents() {
@@ -277,11 +611,36 @@ public final class MessageEditorPlugin extends JavaPlugin {
     }
 
     public Map.Entry<MessageEdit, String> getCachedMessage(String messageBefore) {
-        return this.cachedMessages.getIfPresent(messageBefore);
+        Map.Entry<MessageEdit, String> cachedMessage = this.cachedMessages.getIfPresent(messageBefore);
+        // A message can still be cached by an edit that has just been removed if it was edited while edits were being replaced.
+        if (cachedMessage != null && !this.editSnapshot.contains(cachedMessage.getKey())) {
+            return null;
+        }
+        return cachedMessage;
     }
 
-    public void cacheMessage(String messageBefore, MessageEdit edit, String messageAfter) {
-        this.cachedMessages.put(messageBefore, new AbstractMap.SimpleEntry<>(edit, messageAfter));
+    // The snapshot is the one the message was edited with. If edits have been replaced in the meantime,
+    // invalidation may have already run without seeing this message, so it is not kept.
+    public void cacheMessage(EditSnapshot snapshot, String messageBefore, MessageEdit edit, String messageAfter) {
+        Map.Entry<MessageEdit, String> cachedMessage = new AbstractMap.SimpleEntry<>(edit, messageAfter);
+        this.cachedMessages.put(messageBefore, cachedMessage);
+        this.cachedMessagesByEdit.computeIfAbsent(edit, key -> ConcurrentHashMap.newKeySet()).add(messageBefore);
+        if (this.editSnapshot != snapshot) {
+            this.cachedMessages.asMap().remove(messageBefore, cachedMessage);
+        }
+    }
+
+    // Keeps the reverse index in sync with the cache. Replaced messages are left indexed, as they are
+    // almost always replaced with a result of the same edit, and a stale message only causes
+    // an unnecessary invalidation later on.
+    private void onCachedMessageRemoval(RemovalNotification<String, Map.Entry<MessageEdit, String>> notification) {
+        if (notification.getCause() == RemovalCause.REPLACED || notification.getKey() == null || notification.getValue() == null) {
+            return;
+        }
+        Set<String> messages = this.cachedMessagesByEdit.get(notification.getValue().getKey());
+        if (messages != null) {
+            messages.remove(notification.getKey());
+        }
     }
 
     public void uncacheMessage(String messageBefore) {
@@ -290,6 +649,290 @@ public final class MessageEditorPlugin extends JavaPlugin {
 
     public void clearCachedMessages() {
         this.cachedMessages.invalidateAll();
+        this.cachedMessagesByEdit.clear();
+        this.clearCachedPlayerMessages();
+        this.clearCachedItemMessages();
+        this.clearCachedLoreLines();
+        this.clearCachedEntityNames();
+        this.clearCachedBossBarTitles();
+        this.clearCachedComponentMessages();
+        this.clearCachedScoreboardEntries();
+        this.clearCachedScoreboardTeamMessages();
+    }
+
+    // Shared messages are only invalidated if they were edited by one of the removed edits (found through
+    // the reverse index) or if one of the added edits matches them and takes precedence over the edit
+    // that edited them. Messages that no edit matched are carried over by the snapshot itself.
+    // Caches that remember results of several edits at once (items and per-viewer messages) are cheap
+    // to rebuild from the shared ones and are cleared as a whole.
+    private void invalidateCachedMessages(EditSnapshot snapshot, Collection<MessageEdit> removedEdits, Collection<MessageEdit> addedEdits) {
+        for (MessageEdit edit : removedEdits) {
+            Set<String> messages = this.cachedMessagesByEdit.remove(edit);
+            if (messages != null) {
+                this.cachedMessages.invalidateAll(messages);
+            }
+        }
+        int firstAddedPosition = Integer.MAX_VALUE;
+        for (MessageEdit edit : addedEdits) {
+            firstAddedPosition = Math.min(firstAddedPosition, snapshot.getPosition(edit));
+        }
+        for (Map.Entry<MessageEdit, Set<String>> entry : this.cachedMessagesByEdit.entrySet()) {
+            if (snapshot.getPosition(entry.getKey()) <= firstAddedPosition) {
+                continue;
+            }
+            for (String message : entry.getValue()) {
+                if (matchesAny(addedEdits, message)) {
+                    this.cachedMessages.invalidate(message);
+                }
+            }
+        }
+        if (this.cachedLoreLines != null) {
+            this.cachedLoreLines.asMap().keySet().removeIf(line -> matchesAny(removedEdits, line) || matchesAny(addedEdits, line));
+        }
+        this.clearCachedItemMessages();
+        this.clearCachedEntityNames();
+        this.clearCachedBossBarTitles();
+        this.clearCachedComponentMessages();
+        this.clearCachedScoreboardEntries();
+        this.clearCachedScoreboardTeamMessages();
+    }
+
+    private static boolean matchesAny(Collection<MessageEdit> edits, String message) {
+        for (MessageEdit edit : edits) {
+            if (edit.getMatcher(message) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Messages cached above are shared between all players and thus cannot have placeholders set.
+    // Placeholders are set per player, optionally caching the result for a short period of time.
+    public String setPlaceholders(Player player, String message) {
+        if (!this.placeholderApiPresent || !PlaceholderAPI.containsPlaceholders(message)) {
+            return message;
+        }
+        if (this.cachedPlayerMessages == null) {
+            return PlaceholderAPI.setPlaceholders(player, message);
+        }
+        UUID uuid;
+        try {
+            uuid = player.getUniqueId();
+        } catch (UnsupportedOperationException exception) {
+            // Temporary players (before joining the server) do not have unique ids.
+            return PlaceholderAPI.setPlaceholders(player, message);
+        }
+        Map.Entry<UUID, String> key = new AbstractMap.SimpleImmutableEntry<>(uuid, message);
+        String cachedMessage = this.cachedPlayerMessages.getIfPresent(key);
+        if (cachedMessage == null) {
+            cachedMessage = PlaceholderAPI.setPlaceholders(player, message);
+            this.cachedPlayerMessages.put(key, cachedMessage);
+        }
+        return cachedMessage;
+    }
+
+    public void clearCachedPlayerMessages() {
+        if (this.cachedPlayerMessages != null) {
+            this.cachedPlayerMessages.invalidateAll();
+        }
+    }
+
+    public ItemMessages getCachedItemMessages(Map.Entry<String, List<String>> key) {
+        if (this.cachedItemMessages == null) {
+            return null;
+        }
+        return this.cachedItemMessages.getIfPresent(key);
+    }
+
+    public void cacheItemMessages(EditSnapshot snapshot, Map.Entry<String, List<String>> key, ItemMessages messages) {
+        if (this.cachedItemMessages != null) {
+            this.cachedItemMessages.put(key, messages);
+            if (this.editSnapshot != snapshot) {
+                this.cachedItemMessages.asMap().remove(key, messages);
+            }
+        }
+    }
+
+    public void clearCachedItemMessages() {
+        if (this.cachedItemMessages != null) {
+            this.cachedItemMessages.invalidateAll();
+        }
+    }
+
+    public String getCachedLoreLine(String line) {
+        if (this.cachedLoreLines == null) {
+            return null;
+        }
+        return this.cachedLoreLines.getIfPresent(line);
+    }
+
+    public void cacheLoreLine(EditSnapshot snapshot, String line, String newLine) {
+        if (this.cachedLoreLines != null) {
+            this.cachedLoreLines.put(line, newLine);
+            if (this.editSnapshot != snapshot) {
+                this.cachedLoreLines.asMap().remove(line, newLine);
+            }
+        }
+    }
+
+    public void clearCachedLoreLines() {
+        if (this.cachedLoreLines != null) {
+            this.cachedLoreLines.invalidateAll();
+        }
+    }
+
+    public CachedComponentMessage getCachedEntityName(UUID viewer, int entityId) {
+        Map<Integer, CachedComponentMessage> entityNames = this.cachedEntityNames.get(viewer);
+        if (entityNames == null) {
+            return null;
+        }
+        return entityNames.get(entityId);
+    }
+
+    public void cacheEntityName(UUID viewer, int entityId, CachedComponentMessage entityName) {
+        this.cachedEntityNames.computeIfAbsent(viewer, key -> new ConcurrentHashMap<>()).put(entityId, entityName);
+    }
+
+    public void uncacheEntityName(UUID viewer, int entityId) {
+        Map<Integer, CachedComponentMessage> entityNames = this.cachedEntityNames.get(viewer);
+        if (entityNames != null) {
+            entityNames.remove(entityId);
+        }
+    }
+
+    public void clearCachedEntityNames(UUID viewer) {
+        this.cachedEntityNames.remove(viewer);
+    }
+
+    public void clearCachedEntityNames() {
+        this.cachedEntityNames.clear();
+    }
+
+    public CachedComponentMessage getCachedBossBarTitle(UUID viewer, UUID bossBar) {
+        Map<UUID, CachedComponentMessage> bossBarTitles = this.cachedBossBarTitles.get(viewer);
+        if (bossBarTitles == null) {
+            return null;
+        }
+        return bossBarTitles.get(bossBar);
+    }
+
+    public void cacheBossBarTitle(UUID viewer, UUID bossBar, CachedComponentMessage title) {
+        this.cachedBossBarTitles.computeIfAbsent(viewer, key -> new ConcurrentHashMap<>()).put(bossBar, title);
+    }
+
+    public void uncacheBossBarTitle(UUID viewer, UUID bossBar) {
+        Map<UUID, CachedComponentMessage> bossBarTitles = this.cachedBossBarTitles.get(viewer);
+        if (bossBarTitles != null) {
+            bossBarTitles.remove(bossBar);
+        }
+    }
+
+    public void clearCachedBossBarTitles(UUID viewer) {
+        this.cachedBossBarTitles.remove(viewer);
+    }
+
+    public void clearCachedBossBarTitles() {
+        this.cachedBossBarTitles.clear();
+    }
+
+    // Returns the last message of the given place and key (for example player list entry) seen by the player.
+    public CachedComponentMessage getCachedComponentMessage(UUID viewer, MessagePlace place, String key) {
+        Map<Map.Entry<MessagePlace, String>, CachedComponentMessage> componentMessages = this.cachedComponentMessages.get(viewer);
+        if (componentMessages == null) {
+            return null;
+        }
+        return componentMessages.get(new AbstractMap.SimpleImmutableEntry<>(place, key));
+    }
+
+    public void cacheComponentMessage(UUID viewer, MessagePlace place, String key, CachedComponentMessage message) {
+        this.cachedComponentMessages.computeIfAbsent(viewer, ignored -> new ConcurrentHashMap<>()).put(new AbstractMap.SimpleImmutableEntry<>(place, key), message);
+    }
+
+    public void uncacheComponentMessage(UUID viewer, MessagePlace place, String key) {
+        Map<Map.Entry<MessagePlace, String>, CachedComponentMessage> componentMessages = this.cachedComponentMessages.get(viewer);
+        if (componentMessages != null) {
+            componentMessages.remove(new AbstractMap.SimpleImmutableEntry<>(place, key));
+        }
+    }
+
+    public void clearCachedComponentMessages(UUID viewer) {
+        this.cachedComponentMessages.remove(viewer);
+    }
+
+    public void clearCachedComponentMessages() {
+        this.cachedComponentMessages.clear();
+    }
+
+    public CachedScoreboardEntry getCachedScoreboardEntry(UUID viewer, String objective, String entry) {
+        Map<Map.Entry<String, String>, CachedScoreboardEntry> scoreboardEntries = this.cachedScoreboardEntries.get(viewer);
+        if (scoreboardEntries == null) {
+            return null;
+        }
+        return scoreboardEntries.get(new AbstractMap.SimpleImmutableEntry<>(objective, entry));
+    }
+
+    public void cacheScoreboardEntry(UUID viewer, String objective, String entry, CachedScoreboardEntry scoreboardEntry) {
+        this.cachedScoreboardEntries.computeIfAbsent(viewer, key -> new ConcurrentHashMap<>()).put(new AbstractMap.SimpleImmutableEntry<>(objective, entry), scoreboardEntry);
+    }
+
+    // Null or empty objective removes the entry from all objectives.
+    public void uncacheScoreboardEntry(UUID viewer, String objective, String entry) {
+        Map<Map.Entry<String, String>, CachedScoreboardEntry> scoreboardEntries = this.cachedScoreboardEntries.get(viewer);
+        if (scoreboardEntries == null) {
+            return;
+        }
+        if (objective == null || objective.isEmpty()) {
+            scoreboardEntries.keySet().removeIf(key -> key.getValue().equals(entry));
+        } else {
+            scoreboardEntries.remove(new AbstractMap.SimpleImmutableEntry<>(objective, entry));
+        }
+    }
+
+    public void uncacheScoreboardObjective(UUID viewer, String objective) {
+        Map<Map.Entry<String, String>, CachedScoreboardEntry> scoreboardEntries = this.cachedScoreboardEntries.get(viewer);
+        if (scoreboardEntries != null) {
+            scoreboardEntries.keySet().removeIf(key -> key.getKey().equals(objective));
+        }
+    }
+
+    public void clearCachedScoreboardEntries(UUID viewer) {
+        this.cachedScoreboardEntries.remove(viewer);
+    }
+
+    public void clearCachedScoreboardEntries() {
+        this.cachedScoreboardEntries.clear();
+    }
+
+    // Returns the last team message of the given place seen by the player together with its edited message.
+    public Map.Entry<String, String> getCachedScoreboardTeamMessage(UUID viewer, MessagePlace place, String team) {
+        Map<Map.Entry<MessagePlace, String>, Map.Entry<String, String>> teamMessages = this.cachedScoreboardTeamMessages.get(viewer);
+        if (teamMessages == null) {
+            return null;
+        }
+        return teamMessages.get(new AbstractMap.SimpleImmutableEntry<>(place, team));
+    }
+
+    public void cacheScoreboardTeamMessage(UUID viewer, MessagePlace place, String team, String message, String editedMessage) {
+        this.cachedScoreboardTeamMessages.computeIfAbsent(viewer, key -> new ConcurrentHashMap<>()).put(new AbstractMap.SimpleImmutableEntry<>(place, team), new AbstractMap.SimpleImmutableEntry<>(message, editedMessage));
+    }
+
+    public void uncacheScoreboardTeamMessage(UUID viewer, MessagePlace place, String team) {
+        Map<Map.Entry<MessagePlace, String>, Map.Entry<String, String>> teamMessages = this.cachedScoreboardTeamMessages.get(viewer);
+        if (teamMessages != null) {
+            teamMessages.remove(new AbstractMap.SimpleImmutableEntry<>(place, team));
+        }
+    }
+
+    public void clearCachedScoreboardTeamMessages(UUID viewer) {
+        this.cachedScoreboardTeamMessages.remove(viewer);
+    }
+
+    public void clearCachedScoreboardTeamMessages() {
+        this.cachedScoreboardTeamMessages.clear();
+    }
+
+    public boolean isSuppressDuplicateScoreboardEntries() {
+        return this.suppressDuplicateScoreboardEntries;
     }
 
     public Set<String> getCachedMessagesData() {
@@ -312,6 +955,18 @@ public final class MessageEditorPlugin extends JavaPlugin {
         this.cachedMessagesData.invalidateAll();
     }
 
+    public boolean isCaptureMessageDataOnDemand() {
+        return this.captureMessageDataOnDemand;
+    }
+
+    public long getSkippedMessageDataCaptures() {
+        return this.skippedMessageDataCaptures.sum();
+    }
+
+    public void skipMessageDataCapture() {
+        this.skippedMessageDataCaptures.increment();
+    }
+
     public Map<UUID, MessageEditData> getCurrentMessageEditsData() {
         return Collections.unmodifiableMap(this.currentMessageEditsData);
     }
@@ -68,17 +68,25 @@ public final class MessageEditorCommand implements CommandExecutor {
                 MessageUtils.sendPrefixedMessage(sender, "&7Correct usage: &e/" + label + " reload&7.");
                 return true;
             }
-            this.plugin.clearCachedMessages();
-            this.plugin.clearCurrentMessageEditsData();
-            this.plugin.reloadConfig();
-            for (Player player : Bukkit.getOnlinePlayers()) {
-                InventoryView openInventory = player.getOpenInventory();
-                if (openInventory.getTitle().equals(MessageUtils.translate("&8Message Editor"))) {
-                    player.closeInventory();
-                    MessageUtils.sendPrefixedMessage(player, "&7Your message editor menu has been closed due to the plugin reload.");
+            this.plugin.reloadSettings();
+            MessageUtils.sendPrefixedMessage(sender, "&7Reloading message edits...");
+            // Edits are loaded off the main thread, the old ones are still in use until the new ones are ready.
+            this.plugin.reloadMessageEdits().whenComplete((ignored, throwable) -> Bukkit.getScheduler().runTask(this.plugin, () -> {
+                if (throwable != null) {
+                    this.plugin.getLogger().log(Level.WARNING, "Could not reload message edits.", throwable);
+                    MessageUtils.sendPrefixedMessage(sender, "&cCould not reload message edits, check the console for more information.");
+                    return;
                 }
-            }
-            MessageUtils.sendPrefixedMessage(sender, "&7Plugin has been reloaded.");
+                this.plugin.clearCurrentMessageEditsData();
+                for (Player player : Bukkit.getOnlinePlayers()) {
+                    InventoryView openInventory = player.getOpenInventory();
+                    if (openInventory.getTitle().equals(MessageUtils.translate("&8Message Editor"))) {
+                        player.closeInventory();
+                        MessageUtils.sendPrefixedMessage(player, "&7Your message editor menu has been closed due to the plugin reload.");
+                    }
+                }
+                MessageUtils.sendPrefixedMessage(sender, "&7Plugin has been reloaded.");
+            }));
             return true;
         }
         if (arguments[0].equalsIgnoreCase("edit")) {
@@ -160,6 +168,17 @@ public final class MessageEditorCommand implements CommandExecutor {
             MessageUtils.sendMessage(sender, "&7You have deactivated analyzing all message places.");
             return true;
         }
+        if (arguments[0].equalsIgnoreCase("stats")) {
+            if (arguments.length != 1) {
+                MessageUtils.sendPrefixedMessage(sender, "&7Correct usage: &e/" + label + " stats&7.");
+                return true;
+            }
+            MessageUtils.sendPrefixedMessage(sender, "&7Statistics:");
+            MessageUtils.sendMessage(sender, " &8- &7Cached messages: &e" + this.plugin.getCachedMessages().size());
+            MessageUtils.sendMessage(sender, " &8- &7Cached messages data: &e" + this.plugin.getCachedMessagesData().size());
+            MessageUtils.sendMessage(sender, " &8- &7Skipped message data captures: &e" + this.plugin.getSkippedMessageDataCaptures());
+            return true;
+        }
         if (arguments[0].equalsIgnoreCase("migrate")) {
             if (arguments.length != 1) {
                 MessageUtils.sendPrefixedMessage(sender, "&7Correct usage: &e/" + label + " migrate&7.");
@@ -212,6 +231,7 @@ public final class MessageEditorCommand implements CommandExecutor {
         MessageUtils.sendMessage(target, " &8- &eactivate &6<message places> &7- Activates analyzing message places.");
         MessageUtils.sendMessage(target, " &8- &edeactivate &6<message places> &7- Dectivates analyzing message places.");
         MessageUtils.sendMessage(target, " &8- &edeactivate-all &7- Deactivates analyzing all message places.");
+        MessageUtils.sendMessage(target, " &8- &estats &7- Shows plugin statistics.");
         MessageUtils.sendMessage(target, " &8- &emigrate &7- Migrates old message edits to the new per-file system.");
         this.sendAvailableMessagePlaces(target);
     }
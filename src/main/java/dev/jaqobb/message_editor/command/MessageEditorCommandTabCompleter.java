@@ -59,6 +59,9 @@ public final class MessageEditorCommandTabCompleter implements TabCompleter {
             if ("deactivateall".startsWith(argument)) {
                 completions.add("deactivateall");
             }
+            if ("stats".startsWith(argument)) {
+                completions.add("stats");
+            }
             if ("migrate".startsWith(argument)) {
                 completions.add("migrate");
             }
@@ -24,11 +24,18 @@
 
 package dev.jaqobb.message_editor.listener.packet;
 
+import com.comphenix.protocol.events.InternalStructure;
 import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
 import com.comphenix.protocol.utility.MinecraftVersion;
+import com.comphenix.protocol.wrappers.WrappedChatComponent;
 import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.message.CachedComponentMessage;
 import dev.jaqobb.message_editor.message.MessagePlace;
 import dev.jaqobb.message_editor.message.bossbar.BossBarAction;
+import dev.jaqobb.message_editor.util.MessageUtils;
+import org.bukkit.entity.Player;
+import java.util.UUID;
 
 public final class BossBarPacketListener extends CommonPacketListener {
 
@@ -36,14 +43,64 @@ public final class BossBarPacketListener extends CommonPacketListener {
         super(plugin, MessagePlace.BOSS_BAR);
     }
 
+    // Countdown boss bars resend their titles very often, so the last title of each boss bar is remembered
+    // per player together with its edited message until the boss bar is removed.
     @Override
-    public boolean shouldProcess(PacketContainer packet) {
+    public void onPacketSending(PacketEvent event) {
+        if (event.isCancelled()) {
+            return;
+        }
+        PacketContainer packet = event.getPacket();
+        Player player = event.getPlayer();
+        UUID viewer = player.getUniqueId();
+        UUID bossBar = packet.getUUIDs().readSafely(0);
+        WrappedChatComponent title;
         if (!MinecraftVersion.CAVES_CLIFFS_1.atOrAbove()) {
             BossBarAction action = packet.getEnumModifier(BossBarAction.class, 1).readSafely(0);
-            return action == BossBarAction.ADD || action == BossBarAction.UPDATE_NAME;
+            if (action == BossBarAction.REMOVE) {
+                this.getPlugin().uncacheBossBarTitle(viewer, bossBar);
+                return;
+            }
+            if (action != BossBarAction.ADD && action != BossBarAction.UPDATE_NAME) {
+                return;
+            }
+            title = packet.getChatComponents().readSafely(0);
+        } else {
+            InternalStructure operation = packet.getStructures().readSafely(1);
+            // Removing a boss bar is the only operation without any fields.
+            if (operation.getModifier().size() == 0) {
+                this.getPlugin().uncacheBossBarTitle(viewer, bossBar);
+                return;
+            }
+            // Since there is a chat component, it means that the packet is
+            // for adding a boss bar or updating its name.
+            if (operation.getChatComponents().size() != 1) {
+                return;
+            }
+            title = operation.getChatComponents().readSafely(0);
+        }
+        if (title == null) {
+            return;
+        }
+        Object titleHandle = title.getHandle();
+        CachedComponentMessage cachedTitle = this.getPlugin().getCachedBossBarTitle(viewer, bossBar);
+        if (cachedTitle == null || !cachedTitle.matches(titleHandle)) {
+            String originalMessage = title.getJson();
+            cachedTitle = new CachedComponentMessage(titleHandle, originalMessage, this.findEditedMessage(originalMessage));
+            this.getPlugin().cacheBossBarTitle(viewer, bossBar, cachedTitle);
+        }
+        String originalMessage = cachedTitle.getMessage();
+        String message = originalMessage;
+        if (cachedTitle.getEditedMessage() != null) {
+            message = this.getPlugin().setPlaceholders(player, cachedTitle.getEditedMessage());
+        }
+        boolean json = MessageUtils.isJson(message);
+        this.captureMessageData(player, message, json);
+        if (!message.equals(originalMessage)) {
+            // Boss bar operations are shared by shallow copies since 1.17.
+            packet = packet.deepClone();
+            MessagePlace.BOSS_BAR.setMessage(packet, message, json);
+            event.setPacket(packet);
         }
-        // Since there is a chat component, it means that the packet is
-        // for adding a boss bar or updating its name.
-        return packet.getStructures().readSafely(1).getChatComponents().size() == 1;
     }
 }
@@ -31,11 +31,11 @@ import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.events.PacketEvent;
 import com.comphenix.protocol.utility.MinecraftVersion;
 import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.message.EditSnapshot;
 import dev.jaqobb.message_editor.message.MessageData;
 import dev.jaqobb.message_editor.message.MessageEdit;
 import dev.jaqobb.message_editor.message.MessagePlace;
 import dev.jaqobb.message_editor.util.MessageUtils;
-import me.clip.placeholderapi.PlaceholderAPI;
 import net.md_5.bungee.api.chat.BaseComponent;
 import net.md_5.bungee.api.chat.ClickEvent;
 import net.md_5.bungee.api.chat.HoverEvent;
@@ -74,24 +74,15 @@ public final class ChatPacketListener extends PacketAdapter {
         if (message == null) {
             return;
         }
+        EditSnapshot snapshot = this.getPlugin().getEditSnapshot();
         Map.Entry<MessageEdit, String> cachedMessage = this.getPlugin().getCachedMessage(message);
         MessageEdit messageEdit = null;
         Matcher messageEditMatcher = null;
         if (cachedMessage == null) {
-            for (MessageEdit edit : this.getPlugin().getMessageEdits()) {
-                MessagePlace beforePlace = edit.getMessageBeforePlace();
-                if (beforePlace == MessagePlace.GAME_CHAT && MinecraftVersion.WILD_UPDATE.atOrAbove()) {
-                    beforePlace = MessagePlace.SYSTEM_CHAT;
-                }
-                if (beforePlace != null && beforePlace != place) {
-                    continue;
-                }
-                Matcher matcher = edit.getMatcher(message);
-                if (matcher != null) {
-                    messageEdit = edit;
-                    messageEditMatcher = matcher;
-                    break;
-                }
+            Map.Entry<MessageEdit, Matcher> match = snapshot.getLookup(place).find(message);
+            if (match != null) {
+                messageEdit = match.getKey();
+                messageEditMatcher = match.getValue();
             }
         }
         if (cachedMessage != null || (messageEdit != null && messageEditMatcher != null)) {
@@ -108,14 +99,11 @@ public final class ChatPacketListener extends PacketAdapter {
                         place = MessagePlace.SYSTEM_CHAT;
                     }
                 }
-                message = value;
+                message = this.getPlugin().setPlaceholders(player, value);
             } else {
                 String newMessage = messageEditMatcher.replaceAll(messageEdit.getMessageAfter());
                 newMessage = MessageUtils.translate(newMessage);
-                if (this.getPlugin().isPlaceholderApiPresent()) {
-                    newMessage = PlaceholderAPI.setPlaceholders(player, newMessage);
-                }
-                this.getPlugin().cacheMessage(message, messageEdit, newMessage);
+                this.getPlugin().cacheMessage(snapshot, message, messageEdit, newMessage);
                 if (newMessage.isEmpty()) {
                     event.setCancelled(true);
                     return;
@@ -127,16 +115,22 @@ public final class ChatPacketListener extends PacketAdapter {
                         place = MessagePlace.SYSTEM_CHAT;
                     }
                 }
-                message = newMessage;
+                message = this.getPlugin().setPlaceholders(player, newMessage);
             }
         }
         boolean json = MessageUtils.isJson(message);
-        String id = MessageUtils.generateId(place);
-        this.getPlugin().cacheMessageData(id, new MessageData(id, place, message, json));
-        if (place.isAnalyzing()) {
-            MessageUtils.logMessage(this.getPlugin().getLogger(), place, player, id, json, message);
+        boolean editable = this.getPlugin().isAttachSpecialHoverAndClickEvents() && player.hasPermission("messageeditor.use");
+        String id = null;
+        if (place.isAnalyzing() || editable || !this.getPlugin().isCaptureMessageDataOnDemand()) {
+            id = MessageUtils.generateId(place);
+            this.getPlugin().cacheMessageData(id, new MessageData(id, place, message, json));
+            if (place.isAnalyzing()) {
+                MessageUtils.logMessage(this.getPlugin().getLogger(), place, player, id, json, message);
+            }
+        } else {
+            this.getPlugin().skipMessageDataCapture();
         }
-        if (this.getPlugin().isAttachSpecialHoverAndClickEvents() && player.hasPermission("messageeditor.use")) {
+        if (editable) {
             BaseComponent[] messageComponents;
             if (json) {
                 messageComponents = ComponentSerializer.parse(message);
@@ -24,18 +24,20 @@
 
 package dev.jaqobb.message_editor.listener.packet;
 
+import com.comphenix.protocol.PacketType;
 import com.comphenix.protocol.events.ListenerPriority;
 import com.comphenix.protocol.events.PacketAdapter;
 import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.events.PacketEvent;
 import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.message.EditSnapshot;
 import dev.jaqobb.message_editor.message.MessageData;
 import dev.jaqobb.message_editor.message.MessageEdit;
 import dev.jaqobb.message_editor.message.MessagePlace;
 import dev.jaqobb.message_editor.util.MessageUtils;
-import me.clip.placeholderapi.PlaceholderAPI;
 import org.bukkit.entity.Player;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 
 class CommonPacketListener extends PacketAdapter {
@@ -43,7 +45,11 @@ class CommonPacketListener extends PacketAdapter {
     private final MessagePlace messagePlace;
 
     CommonPacketListener(MessageEditorPlugin plugin, MessagePlace messagePlace) {
-        super(plugin, ListenerPriority.HIGHEST, messagePlace.getPacketTypes());
+        this(plugin, messagePlace, messagePlace.getPacketTypes());
+    }
+
+    CommonPacketListener(MessageEditorPlugin plugin, MessagePlace messagePlace, Set<PacketType> packetTypes) {
+        super(plugin, ListenerPriority.HIGHEST, packetTypes);
         this.messagePlace = messagePlace;
     }
 
@@ -52,6 +58,10 @@ class CommonPacketListener extends PacketAdapter {
         return (MessageEditorPlugin) this.plugin;
     }
 
+    public MessagePlace getMessagePlace() {
+        return this.messagePlace;
+    }
+
     public boolean shouldProcess(PacketContainer packet) {
         return true;
     }
@@ -67,49 +77,53 @@ class CommonPacketListener extends PacketAdapter {
         }
         Player player = event.getPlayer();
         String originalMessage = this.messagePlace.getMessage(packet);
-        String message = originalMessage;
-        if (message == null) {
+        if (originalMessage == null) {
             return;
         }
-        Map.Entry<MessageEdit, String> cachedMessage = this.getPlugin().getCachedMessage(message);
-        MessageEdit messageEdit = null;
-        Matcher messageEditMatcher = null;
-        if (cachedMessage == null) {
-            for (MessageEdit edit : this.getPlugin().getMessageEdits()) {
-                MessagePlace place = edit.getMessageBeforePlace();
-                if (place != null && place != this.messagePlace) {
-                    continue;
-                }
-                Matcher matcher = edit.getMatcher(message);
-                if (matcher != null) {
-                    messageEdit = edit;
-                    messageEditMatcher = matcher;
-                    break;
-                }
-            }
-        }
-        if (cachedMessage != null || (messageEdit != null && messageEditMatcher != null)) {
-            if (cachedMessage != null) {
-                message = cachedMessage.getValue();
-            } else {
-                String newMessage = messageEditMatcher.replaceAll(messageEdit.getMessageAfter());
-                newMessage = MessageUtils.translate(newMessage);
-                if (this.getPlugin().isPlaceholderApiPresent()) {
-                    newMessage = PlaceholderAPI.setPlaceholders(player, newMessage);
-                }
-                this.getPlugin().cacheMessage(message, messageEdit, newMessage);
-                message = newMessage;
-            }
-        }
+        String message = this.editMessage(player, originalMessage);
         boolean json = MessageUtils.isJson(message);
-        String id = MessageUtils.generateId(this.messagePlace);
-        this.getPlugin().cacheMessageData(id, new MessageData(id, this.messagePlace, message, json));
-        if (this.messagePlace.isAnalyzing()) {
-            MessageUtils.logMessage(this.getPlugin().getLogger(), this.messagePlace, player, id, json, message);
-        }
+        this.captureMessageData(player, message, json);
         if (!message.equals(originalMessage)) {
             this.messagePlace.setMessage(packet, message, json);
             event.setPacket(packet);
         }
     }
+
+    protected String editMessage(Player player, String message) {
+        String editedMessage = this.findEditedMessage(message);
+        if (editedMessage == null) {
+            return message;
+        }
+        return this.getPlugin().setPlaceholders(player, editedMessage);
+    }
+
+    // Returns the message after applying the matching message edit (without placeholders set) or null if no edit matches.
+    protected String findEditedMessage(String message) {
+        Map.Entry<MessageEdit, String> cachedMessage = this.getPlugin().getCachedMessage(message);
+        if (cachedMessage != null) {
+            return cachedMessage.getValue();
+        }
+        EditSnapshot snapshot = this.getPlugin().getEditSnapshot();
+        Map.Entry<MessageEdit, Matcher> match = snapshot.getLookup(this.messagePlace).find(message);
+        if (match == null) {
+            return null;
+        }
+        MessageEdit messageEdit = match.getKey();
+        String newMessage = match.getValue().replaceAll(messageEdit.getMessageAfter());
+        newMessage = MessageUtils.translate(newMessage);
+        this.getPlugin().cacheMessage(snapshot, message, messageEdit, newMessage);
+        return newMessage;
+    }
+
+    protected void captureMessageData(Player player, String message, boolean json) {
+        if (this.messagePlace.isAnalyzing() || !this.getPlugin().isCaptureMessageDataOnDemand()) {
+            String id = MessageUtils.generateId(this.messagePlace);
+            this.getPlugin().cacheMessageData(id, new MessageData(id, this.messagePlace, message, json));
+            if (this.messagePlace.isAnalyzing()) {
+                MessageUtils.logMessage(this.getPlugin().getLogger(), this.messagePlace, player, id, json, message);
+            }
+        } else {
+            this.getPlugin().skipMessageDataCapture();
+        }
+    }
 }
@@ -24,12 +24,84 @@
 
 package dev.jaqobb.message_editor.listener.packet;
 
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
 import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.message.CachedComponentMessage;
 import dev.jaqobb.message_editor.message.MessagePlace;
+import dev.jaqobb.message_editor.util.EntityMetadataUtils;
+import dev.jaqobb.message_editor.util.MessageUtils;
+import org.bukkit.entity.Player;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
 
 public final class EntityNamePacketListener extends CommonPacketListener {
 
     public EntityNamePacketListener(MessageEditorPlugin plugin) {
-        super(plugin, MessagePlace.ENTITY_NAME);
+        super(plugin, MessagePlace.ENTITY_NAME, new HashSet<>(Arrays.asList(PacketType.Play.Server.ENTITY_METADATA, PacketType.Play.Server.ENTITY_DESTROY)));
+    }
+
+    // Entity metadata is sent very often and rarely contains custom names, so the metadata is searched
+    // only once, before anything gets wrapped, and the found position is used to update the name.
+    @Override
+    public void onPacketSending(PacketEvent event) {
+        if (event.isCancelled()) {
+            return;
+        }
+        PacketContainer packet = event.getPacket();
+        Player player = event.getPlayer();
+        if (packet.getType() == PacketType.Play.Server.ENTITY_DESTROY) {
+            this.uncacheEntityNames(player.getUniqueId(), packet);
+            return;
+        }
+        List<?> metadata = EntityMetadataUtils.getMetadata(packet);
+        int position = EntityMetadataUtils.findCustomName(metadata);
+        if (position == -1) {
+            return;
+        }
+        Object name = EntityMetadataUtils.getCustomNameHandle(metadata, position);
+        if (name == null) {
+            return;
+        }
+        // Named entities keep sending the same custom name, so the last name of each entity seen by each player
+        // is remembered together with its edited version until the entity is destroyed or the player leaves.
+        UUID viewer = player.getUniqueId();
+        int entityId = packet.getIntegers().read(0);
+        CachedComponentMessage cachedName = this.getPlugin().getCachedEntityName(viewer, entityId);
+        if (cachedName == null || !cachedName.matches(name)) {
+            String originalMessage = EntityMetadataUtils.getCustomName(name);
+            cachedName = new CachedComponentMessage(name, originalMessage, this.findEditedMessage(originalMessage));
+            this.getPlugin().cacheEntityName(viewer, entityId, cachedName);
+        }
+        String originalMessage = cachedName.getMessage();
+        String message = originalMessage;
+        if (cachedName.getEditedMessage() != null) {
+            message = this.getPlugin().setPlaceholders(player, cachedName.getEditedMessage());
+        }
+        boolean json = MessageUtils.isJson(message);
+        this.captureMessageData(player, message, json);
+        if (!message.equals(originalMessage)) {
+            PacketContainer newPacket = packet.shallowClone();
+            EntityMetadataUtils.setCustomName(newPacket, metadata, position, json ? message : MessageUtils.legacyToJson(message));
+            event.setPacket(newPacket);
+        }
+    }
+
+    private void uncacheEntityNames(UUID viewer, PacketContainer packet) {
+        // 1.17.1+ sends a list of ids, 1.17 sends a single id and older versions send an array of ids.
+        if (packet.getIntLists().size() > 0) {
+            for (int entityId : packet.getIntLists().read(0)) {
+                this.getPlugin().uncacheEntityName(viewer, entityId);
+            }
+        } else if (packet.getIntegerArrays().size() > 0) {
+            for (int entityId : packet.getIntegerArrays().read(0)) {
+                this.getPlugin().uncacheEntityName(viewer, entityId);
+            }
+        } else {
+            this.getPlugin().uncacheEntityName(viewer, packet.getIntegers().read(0));
+        }
     }
 }
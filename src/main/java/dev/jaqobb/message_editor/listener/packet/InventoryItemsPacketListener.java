@@ -25,30 +25,33 @@
 package dev.jaqobb.message_editor.listener.packet;
 
 import com.comphenix.protocol.PacketType;
-import com.comphenix.protocol.ProtocolLibrary;
 import com.comphenix.protocol.events.ListenerPriority;
 import com.comphenix.protocol.events.PacketAdapter;
 import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.events.PacketEvent;
 import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.message.EditSnapshot;
+import dev.jaqobb.message_editor.message.ItemMessages;
 import dev.jaqobb.message_editor.message.MessageData;
 import dev.jaqobb.message_editor.message.MessageEdit;
+import dev.jaqobb.message_editor.message.MessageEditLookup;
 import dev.jaqobb.message_editor.message.MessagePlace;
 import dev.jaqobb.message_editor.util.MessageUtils;
-import me.clip.placeholderapi.PlaceholderAPI;
 import net.md_5.bungee.api.chat.BaseComponent;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.logging.Level;
 import java.util.regex.Matcher;
 
 public final class InventoryItemsPacketListener extends PacketAdapter {
 
     public InventoryItemsPacketListener(MessageEditorPlugin plugin) {
-        super(plugin, ListenerPriority.HIGHEST, PacketType.Play.Server.WINDOW_ITEMS);
+        super(plugin, ListenerPriority.HIGHEST, PacketType.Play.Server.WINDOW_ITEMS, PacketType.Play.Server.SET_SLOT);
     }
 
     @Override
@@ -62,136 +65,232 @@ public final class InventoryItemsPacketListener extends PacketAdapter {
             return;
         }
         Player player = event.getPlayer();
+        // Every item in the packet is edited against the same edits, even if they get replaced in the meantime.
+        EditSnapshot snapshot = this.getPlugin().getEditSnapshot();
         PacketContainer packet = event.getPacket().shallowClone();
-        Iterable<ItemStack> items;
-        if (packet.getItemArrayModifier().size() == 1) {
-            items = Arrays.asList(packet.getItemArrayModifier().readSafely(0));
+        boolean update;
+        if (packet.getType() == PacketType.Play.Server.SET_SLOT) {
+            update = this.editSingleItem(player, snapshot, packet);
         } else {
-            items = packet.getItemListModifier().readSafely(0);
+            update = this.editWindowItems(player, snapshot, packet);
+            // Since 1.17.1 window items also carry the item held by the cursor.
+            if (packet.getItemModifier().size() > 0) {
+                update |= this.editSingleItem(player, snapshot, packet);
+            }
+        }
+        if (update) {
+            event.setPacket(packet);
+        }
+    }
+
+    private boolean editWindowItems(Player player, EditSnapshot snapshot, PacketContainer packet) {
+        boolean array = packet.getItemArrayModifier().size() == 1;
+        List<ItemStack> items;
+        if (array) {
+            items = new ArrayList<>(Arrays.asList(packet.getItemArrayModifier().read(0)));
+        } else {
+            items = new ArrayList<>(packet.getItemListModifier().read(0));
         }
         boolean update = false;
-        for (ItemStack item : items) {
-            if (item == null) {
-                continue;
+        for (int index = 0; index < items.size(); index += 1) {
+            ItemStack item = items.get(index);
+            ItemStack newItem = this.editItem(player, snapshot, item);
+            if (newItem != item) {
+                items.set(index, newItem);
+                update = true;
             }
-            if (!item.hasItemMeta()) {
-                continue;
+        }
+        if (!update) {
+            return false;
+        }
+        if (array) {
+            packet.getItemArrayModifier().write(0, items.toArray(new ItemStack[0]));
+        } else {
+            packet.getItemListModifier().write(0, items);
+        }
+        return true;
+    }
+
+    private boolean editSingleItem(Player player, EditSnapshot snapshot, PacketContainer packet) {
+        ItemStack item = packet.getItemModifier().read(0);
+        ItemStack newItem = this.editItem(player, snapshot, item);
+        if (newItem == item) {
+            return false;
+        }
+        packet.getItemModifier().write(0, newItem);
+        return true;
+    }
+
+    private ItemStack editItem(Player player, EditSnapshot snapshot, ItemStack item) {
+        if (item == null) {
+            return null;
+        }
+        if (!item.hasItemMeta()) {
+            return item;
+        }
+        ItemMeta itemMeta = item.getItemMeta();
+        String name = itemMeta.hasDisplayName() ? itemMeta.getDisplayName() : null;
+        List<String> lore = itemMeta.hasLore() ? itemMeta.getLore() : null;
+        if (name == null && lore == null) {
+            return item;
+        }
+        // Menus send the same items over and over again, so edited names and lores are remembered per name and lore pair.
+        Map.Entry<String, List<String>> key = new AbstractMap.SimpleImmutableEntry<>(name, lore);
+        ItemMessages messages = this.getPlugin().getCachedItemMessages(key);
+        if (messages == null) {
+            messages = this.editItemMessages(snapshot, name, lore == null ? null : String.join("\\n", lore));
+            this.getPlugin().cacheItemMessages(snapshot, key, messages);
+        }
+        if (messages == ItemMessages.UNCHANGED && !this.shouldCaptureMessageData(MessagePlace.INVENTORY_ITEM_NAME) && !this.shouldCaptureMessageData(MessagePlace.INVENTORY_ITEM_LORE) && !this.shouldCaptureMessageData(MessagePlace.INVENTORY_ITEM_LORE_LINE)) {
+            if (name != null) {
+                this.getPlugin().skipMessageDataCapture();
             }
-            ItemMeta itemMeta = item.getItemMeta();
-            if (itemMeta.hasDisplayName()) {
-                String originalMessage = itemMeta.getDisplayName();
-                String message = originalMessage;
-                Map.Entry<MessageEdit, String> cachedMessage = this.getPlugin().getCachedMessage(message);
-                MessageEdit messageEdit = null;
-                Matcher messageEditMatcher = null;
-                if (cachedMessage == null) {
-                    for (MessageEdit edit : this.getPlugin().getMessageEdits()) {
-                        MessagePlace place = edit.getMessageBeforePlace();
-                        if (place != null && place != MessagePlace.INVENTORY_ITEM_NAME) {
-                            continue;
-                        }
-                        Matcher matcher = edit.getMatcher(message);
-                        if (matcher != null) {
-                            messageEdit = edit;
-                            messageEditMatcher = matcher;
-                            break;
-                        }
-                    }
-                }
-                if (cachedMessage != null || (messageEdit != null && messageEditMatcher != null)) {
-                    if (cachedMessage != null) {
-                        message = cachedMessage.getValue();
-                    } else {
-                        String newMessage = messageEditMatcher.replaceAll(messageEdit.getMessageAfter());
-                        newMessage = MessageUtils.translate(newMessage);
-                        if (this.getPlugin().isPlaceholderApiPresent()) {
-                            newMessage = PlaceholderAPI.setPlaceholders(player, newMessage);
-                        }
-                        this.getPlugin().cacheMessage(message, messageEdit, newMessage);
-                        message = newMessage;
-                    }
-                }
-                boolean json = MessageUtils.isJson(message);
-                if (json) {
-                    json = false;
-                    message = BaseComponent.toLegacyText(MessageUtils.toBaseComponents(message));
-                }
-                String id = MessageUtils.generateId(MessagePlace.INVENTORY_ITEM_NAME);
-                this.getPlugin().cacheMessageData(id, new MessageData(id, MessagePlace.INVENTORY_ITEM_NAME, message, json));
-                if (MessagePlace.INVENTORY_ITEM_NAME.isAnalyzing()) {
-                    MessageUtils.logMessage(this.getPlugin().getLogger(), MessagePlace.INVENTORY_ITEM_NAME, player, id, json, message);
-                }
-                if (!message.equals(originalMessage)) {
-                    update = true;
-                    itemMeta.setDisplayName(message);
-                    item.setItemMeta(itemMeta);
-                }
+            if (lore != null) {
+                this.getPlugin().skipMessageDataCapture();
+                this.getPlugin().skipMessageDataCapture();
             }
-            if (itemMeta.hasLore()) {
-                String originalMessage = String.join("\\n", itemMeta.getLore());
-                String message = originalMessage;
-                Map.Entry<MessageEdit, String> cachedMessage = this.getPlugin().getCachedMessage(message);
-                MessageEdit messageEdit = null;
-                Matcher messageEditMatcher = null;
-                if (cachedMessage == null) {
-                    for (MessageEdit edit : this.getPlugin().getMessageEdits()) {
-                        MessagePlace place = edit.getMessageBeforePlace();
-                        if (place != null && place != MessagePlace.INVENTORY_ITEM_LORE) {
-                            continue;
-                        }
-                        Matcher matcher = edit.getMatcher(message);
-                        if (matcher != null) {
-                            messageEdit = edit;
-                            messageEditMatcher = matcher;
-                            break;
-                        }
-                    }
-                }
-                if (cachedMessage != null || (messageEdit != null && messageEditMatcher != null)) {
-                    if (cachedMessage != null) {
-                        message = cachedMessage.getValue();
-                    } else {
-                        String newMessage = messageEditMatcher.replaceAll(messageEdit.getMessageAfter());
-                        newMessage = MessageUtils.translate(newMessage);
-                        if (this.getPlugin().isPlaceholderApiPresent()) {
-                            newMessage = PlaceholderAPI.setPlaceholders(player, newMessage);
-                        }
-                        this.getPlugin().cacheMessage(message, messageEdit, newMessage);
-                        message = newMessage;
-                    }
-                }
-                boolean json = MessageUtils.isJson(message);
-                if (json) {
-                    json = false;
-                    message = BaseComponent.toLegacyText(MessageUtils.toBaseComponents(message));
-                }
-                String id = MessageUtils.generateId(MessagePlace.INVENTORY_ITEM_LORE);
-                this.getPlugin().cacheMessageData(id, new MessageData(id, MessagePlace.INVENTORY_ITEM_LORE, message, json));
-                if (MessagePlace.INVENTORY_ITEM_LORE.isAnalyzing()) {
-                    MessageUtils.logMessage(this.getPlugin().getLogger(), MessagePlace.INVENTORY_ITEM_LORE, player, id, json, message);
-                }
-                if (!message.equals(originalMessage)) {
-                    update = true;
-                    itemMeta.setLore(Arrays.asList(message.split("\\\\n")));
-                    item.setItemMeta(itemMeta);
+            return item;
+        }
+        boolean changed = false;
+        if (name != null) {
+            String message = name;
+            if (messages.getName() != null) {
+                message = messages.isNameEdited() ? this.finishMessage(player, messages.getName()) : messages.getName();
+            }
+            this.captureMessageData(player, MessagePlace.INVENTORY_ITEM_NAME, message);
+            if (!message.equals(name)) {
+                changed = true;
+                itemMeta.setDisplayName(message);
+            }
+        }
+        if (lore != null) {
+            String message = null;
+            if (messages.getLore() != null) {
+                message = messages.isLoreEdited() ? this.finishMessage(player, messages.getLore()) : messages.getLore();
+            }
+            if (this.shouldCaptureMessageData(MessagePlace.INVENTORY_ITEM_LORE)) {
+                this.captureMessageData(player, MessagePlace.INVENTORY_ITEM_LORE, message != null ? message : String.join("\\n", lore));
+            } else {
+                this.getPlugin().skipMessageDataCapture();
+            }
+            List<String> newLore = message != null ? Arrays.asList(message.split("\\\\n")) : lore;
+            if (this.shouldCaptureMessageData(MessagePlace.INVENTORY_ITEM_LORE_LINE)) {
+                for (String line : newLore) {
+                    this.captureMessageData(player, MessagePlace.INVENTORY_ITEM_LORE_LINE, line);
                 }
+            } else {
+                this.getPlugin().skipMessageDataCapture();
+            }
+            if (!newLore.equals(lore)) {
+                changed = true;
+                itemMeta.setLore(newLore);
             }
         }
-        if (update) {
-            // Updating items in the cloned packet and then setting the packet does seem to work but only partially
-            // (initial items are still the old ones and updating the opened inventory actually fixes the issue).
-            // However, during initial testing, not modifying the packet and just sending another one (with modified items) a tick later
-            // seemed to work all the time. Although not sure, this may break (by replacing items in a wrong inventory) when
-            // the opened inventory is changed multiple times in a rapid succession and each inventory needs to be updated.
-            // If such issue happens, I believe it can be fixed by storing and then verifying window id that should have
-            // its items updated.
-            this.plugin.getServer().getScheduler().runTaskAsynchronously(this.getPlugin(), () -> {
-                try {
-                    ProtocolLibrary.getProtocolManager().sendServerPacket(player, packet);
-                } catch (Exception exception) {
-                    this.getPlugin().getLogger().log(Level.WARNING, "Could not send packet with updated items.", exception);
+        if (!changed) {
+            return item;
+        }
+        // Items read from the packet may mirror the server's own item stacks, so they must not be modified directly.
+        ItemStack newItem = item.clone();
+        newItem.setItemMeta(itemMeta);
+        return newItem;
+    }
+
+    // Edited messages are kept without placeholders, as they are shared between all players.
+    // Messages that are not edited but are in JSON format are stored already converted to legacy text.
+    private ItemMessages editItemMessages(EditSnapshot snapshot, String name, String lore) {
+        String newName = null;
+        boolean nameEdited = false;
+        if (name != null) {
+            newName = this.editMessage(snapshot, MessagePlace.INVENTORY_ITEM_NAME, name);
+            nameEdited = newName != null;
+            if (!nameEdited && MessageUtils.isJson(name)) {
+                newName = BaseComponent.toLegacyText(MessageUtils.toBaseComponents(name));
+            }
+        }
+        String newLore = null;
+        boolean loreEdited = false;
+        if (lore != null) {
+            newLore = this.editMessage(snapshot, MessagePlace.INVENTORY_ITEM_LORE, lore);
+            loreEdited = newLore != null;
+            String newLoreLines = this.editLoreLines(snapshot, loreEdited ? newLore : lore);
+            if (newLoreLines != null) {
+                newLore = newLoreLines;
+                loreEdited = true;
+            }
+            if (!loreEdited && MessageUtils.isJson(lore)) {
+                newLore = BaseComponent.toLegacyText(MessageUtils.toBaseComponents(lore));
+            }
+        }
+        if (newName == null && newLore == null) {
+            return ItemMessages.UNCHANGED;
+        }
+        return new ItemMessages(newName, nameEdited, newLore, loreEdited);
+    }
+
+    // Lore lines are edited one by one after the whole lore, so only lines that were not seen before have to be matched.
+    private String editLoreLines(EditSnapshot snapshot, String lore) {
+        MessageEditLookup lookup = snapshot.getLookup(MessagePlace.INVENTORY_ITEM_LORE_LINE);
+        if (lookup.size() == 0) {
+            return null;
+        }
+        String[] lines = lore.split("\\\\n");
+        boolean edited = false;
+        for (int index = 0; index < lines.length; index += 1) {
+            String line = lines[index];
+            String newLine = this.getPlugin().getCachedLoreLine(line);
+            if (newLine == null) {
+                newLine = line;
+                Map.Entry<MessageEdit, Matcher> match = lookup.find(line);
+                if (match != null) {
+                    newLine = MessageUtils.translate(match.getValue().replaceAll(match.getKey().getMessageAfter()));
                 }
-            });
+                this.getPlugin().cacheLoreLine(snapshot, line, newLine);
+            }
+            if (!newLine.equals(line)) {
+                lines[index] = newLine;
+                edited = true;
+            }
+        }
+        return edited ? String.join("\\n", lines) : null;
+    }
+
+    private String editMessage(EditSnapshot snapshot, MessagePlace place, String message) {
+        Map.Entry<MessageEdit, String> cachedMessage = this.getPlugin().getCachedMessage(message);
+        if (cachedMessage != null) {
+            return cachedMessage.getValue();
+        }
+        Map.Entry<MessageEdit, Matcher> match = snapshot.getLookup(place).find(message);
+        if (match == null) {
+            return null;
+        }
+        MessageEdit messageEdit = match.getKey();
+        String newMessage = match.getValue().replaceAll(messageEdit.getMessageAfter());
+        newMessage = MessageUtils.translate(newMessage);
+        this.getPlugin().cacheMessage(snapshot, message, messageEdit, newMessage);
+        return newMessage;
+    }
+
+    private String finishMessage(Player player, String message) {
+        message = this.getPlugin().setPlaceholders(player, message);
+        if (MessageUtils.isJson(message)) {
+            message = BaseComponent.toLegacyText(MessageUtils.toBaseComponents(message));
+        }
+        return message;
+    }
+
+    private boolean shouldCaptureMessageData(MessagePlace place) {
+        return place.isAnalyzing() || !this.getPlugin().isCaptureMessageDataOnDemand();
+    }
+
+    private void captureMessageData(Player player, MessagePlace place, String message) {
+        if (!this.shouldCaptureMessageData(place)) {
+            this.getPlugin().skipMessageDataCapture();
+            return;
+        }
+        String id = MessageUtils.generateId(place);
+        this.getPlugin().cacheMessageData(id, new MessageData(id, place, message, false));
+        if (place.isAnalyzing()) {
+            MessageUtils.logMessage(this.getPlugin().getLogger(), place, player, id, false, message);
         }
     }
 }
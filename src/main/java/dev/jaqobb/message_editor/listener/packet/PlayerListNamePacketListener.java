@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.listener.packet;
+
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.utility.MinecraftVersion;
+import com.comphenix.protocol.wrappers.EnumWrappers;
+import com.comphenix.protocol.wrappers.PlayerInfoData;
+import com.comphenix.protocol.wrappers.WrappedChatComponent;
+import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.message.CachedComponentMessage;
+import dev.jaqobb.message_editor.message.MessagePlace;
+import dev.jaqobb.message_editor.util.MessageUtils;
+import org.bukkit.entity.Player;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+public final class PlayerListNamePacketListener extends CommonPacketListener {
+
+    public PlayerListNamePacketListener(MessageEditorPlugin plugin) {
+        super(plugin, MessagePlace.PLAYER_LIST_NAME, getPacketTypes());
+    }
+
+    private static Set<PacketType> getPacketTypes() {
+        Set<PacketType> packetTypes = new HashSet<>(Collections.singleton(PacketType.Play.Server.PLAYER_INFO));
+        // 1.19.3+ removes players from the player list with a separate packet.
+        if (PacketType.Play.Server.PLAYER_INFO_REMOVE.isSupported()) {
+            packetTypes.add(PacketType.Play.Server.PLAYER_INFO_REMOVE);
+        }
+        return packetTypes;
+    }
+
+    @Override
+    public void onPacketSending(PacketEvent event) {
+        if (event.isCancelled()) {
+            return;
+        }
+        PacketContainer packet = event.getPacket();
+        Player player = event.getPlayer();
+        UUID viewer = player.getUniqueId();
+        if (packet.getType() == PacketType.Play.Server.PLAYER_INFO_REMOVE) {
+            for (UUID uuid : packet.getUUIDLists().read(0)) {
+                this.getPlugin().uncacheComponentMessage(viewer, MessagePlace.PLAYER_LIST_NAME, uuid.toString());
+            }
+            return;
+        }
+        // 1.19.3+ sends a set of actions and the entries in the second list.
+        boolean actionSet = MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove();
+        int entriesIndex;
+        if (actionSet) {
+            if (!packet.getPlayerInfoActions().read(0).contains(EnumWrappers.PlayerInfoAction.UPDATE_DISPLAY_NAME)) {
+                return;
+            }
+            entriesIndex = 1;
+        } else {
+            EnumWrappers.PlayerInfoAction action = packet.getPlayerInfoAction().read(0);
+            if (action == EnumWrappers.PlayerInfoAction.REMOVE_PLAYER) {
+                for (PlayerInfoData entry : packet.getPlayerInfoDataLists().read(0)) {
+                    this.getPlugin().uncacheComponentMessage(viewer, MessagePlace.PLAYER_LIST_NAME, entry.getProfile().getUUID().toString());
+                }
+                return;
+            }
+            if (action != EnumWrappers.PlayerInfoAction.ADD_PLAYER && action != EnumWrappers.PlayerInfoAction.UPDATE_DISPLAY_NAME) {
+                return;
+            }
+            entriesIndex = 0;
+        }
+        List<PlayerInfoData> entries = new ArrayList<>(packet.getPlayerInfoDataLists().read(entriesIndex));
+        boolean update = false;
+        for (int index = 0; index < entries.size(); index += 1) {
+            PlayerInfoData entry = entries.get(index);
+            if (entry == null || entry.getDisplayName() == null) {
+                continue;
+            }
+            UUID uuid = actionSet ? entry.getProfileId() : entry.getProfile().getUUID();
+            WrappedChatComponent displayName = this.editDisplayName(player, uuid, entry.getDisplayName());
+            if (displayName == null) {
+                continue;
+            }
+            if (actionSet) {
+                entries.set(index, new PlayerInfoData(entry.getProfileId(), entry.getLatency(), entry.isListed(), entry.getGameMode(), entry.getProfile(), displayName, entry.getRemoteChatSessionData()));
+            } else {
+                entries.set(index, new PlayerInfoData(entry.getProfile(), entry.getLatency(), entry.getGameMode(), displayName));
+            }
+            update = true;
+        }
+        if (update) {
+            packet = packet.shallowClone();
+            packet.getPlayerInfoDataLists().write(entriesIndex, entries);
+            event.setPacket(packet);
+        }
+    }
+
+    // Returns the new display name or null if it did not change. Animated player list names often repeat,
+    // so the last display name of each listed player is remembered per player together with its edited message.
+    private WrappedChatComponent editDisplayName(Player player, UUID uuid, WrappedChatComponent displayName) {
+        UUID viewer = player.getUniqueId();
+        String key = uuid.toString();
+        Object handle = displayName.getHandle();
+        CachedComponentMessage cachedMessage = this.getPlugin().getCachedComponentMessage(viewer, MessagePlace.PLAYER_LIST_NAME, key);
+        if (cachedMessage == null || !cachedMessage.matches(handle)) {
+            String originalMessage = displayName.getJson();
+            cachedMessage = new CachedComponentMessage(handle, originalMessage, this.findEditedMessage(originalMessage));
+            this.getPlugin().cacheComponentMessage(viewer, MessagePlace.PLAYER_LIST_NAME, key, cachedMessage);
+        }
+        String originalMessage = cachedMessage.getMessage();
+        String message = originalMessage;
+        if (cachedMessage.getEditedMessage() != null) {
+            message = this.getPlugin().setPlaceholders(player, cachedMessage.getEditedMessage());
+        }
+        boolean json = MessageUtils.isJson(message);
+        this.captureMessageData(player, message, json);
+        if (message.equals(originalMessage)) {
+            return null;
+        }
+        return WrappedChatComponent.fromJson(json ? message : MessageUtils.legacyToJson(message));
+    }
+}
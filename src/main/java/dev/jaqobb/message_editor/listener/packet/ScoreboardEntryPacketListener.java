@@ -24,19 +24,88 @@
 
 package dev.jaqobb.message_editor.listener.packet;
 
+import com.comphenix.protocol.PacketType;
 import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
 import com.comphenix.protocol.wrappers.EnumWrappers;
 import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.message.CachedScoreboardEntry;
 import dev.jaqobb.message_editor.message.MessagePlace;
+import dev.jaqobb.message_editor.util.MessageUtils;
+import org.bukkit.entity.Player;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 public final class ScoreboardEntryPacketListener extends CommonPacketListener {
 
     public ScoreboardEntryPacketListener(MessageEditorPlugin plugin) {
-        super(plugin, MessagePlace.SCOREBOARD_ENTRY);
+        super(plugin, MessagePlace.SCOREBOARD_ENTRY, getPacketTypes());
     }
 
+    private static Set<PacketType> getPacketTypes() {
+        Set<PacketType> packetTypes = new HashSet<>(Arrays.asList(PacketType.Play.Server.SCOREBOARD_SCORE, PacketType.Play.Server.SCOREBOARD_OBJECTIVE));
+        // 1.20.3+ removes entries with a separate packet.
+        if (PacketType.Play.Server.RESET_SCORE.isSupported()) {
+            packetTypes.add(PacketType.Play.Server.RESET_SCORE);
+        }
+        return packetTypes;
+    }
+
+    // Sidebar plugins resend every entry very often, so edited entries are remembered per player, objective and entry
+    // until the entry or its objective is removed. Entries that would not change anything can optionally be suppressed.
     @Override
-    public boolean shouldProcess(PacketContainer packet) {
-        return packet.getScoreboardActions().readSafely(0) != EnumWrappers.ScoreboardAction.REMOVE;
+    public void onPacketSending(PacketEvent event) {
+        if (event.isCancelled()) {
+            return;
+        }
+        PacketContainer packet = event.getPacket();
+        Player player = event.getPlayer();
+        UUID viewer = player.getUniqueId();
+        if (packet.getType() == PacketType.Play.Server.SCOREBOARD_OBJECTIVE) {
+            // 1 = remove scoreboard objective
+            Integer mode = packet.getIntegers().readSafely(0);
+            if (mode != null && mode == 1) {
+                this.getPlugin().uncacheScoreboardObjective(viewer, packet.getStrings().readSafely(0));
+            }
+            return;
+        }
+        String originalMessage = packet.getStrings().readSafely(0);
+        if (originalMessage == null) {
+            return;
+        }
+        String objective = packet.getStrings().readSafely(1);
+        // Since 1.20.3 entries are removed with a separate packet and score packets no longer have an action.
+        EnumWrappers.ScoreboardAction action = packet.getType() == PacketType.Play.Server.RESET_SCORE ? null : packet.getScoreboardActions().readSafely(0);
+        if (packet.getType() == PacketType.Play.Server.RESET_SCORE || (action != null && action == EnumWrappers.ScoreboardAction.REMOVE)) {
+            this.getPlugin().uncacheScoreboardEntry(viewer, objective, originalMessage);
+            return;
+        }
+        CachedScoreboardEntry cachedEntry = this.getPlugin().getCachedScoreboardEntry(viewer, objective, originalMessage);
+        if (cachedEntry == null) {
+            cachedEntry = new CachedScoreboardEntry(this.findEditedMessage(originalMessage));
+            this.getPlugin().cacheScoreboardEntry(viewer, objective, originalMessage, cachedEntry);
+        }
+        String message = originalMessage;
+        if (cachedEntry.getEditedMessage() != null) {
+            message = this.getPlugin().setPlaceholders(player, cachedEntry.getEditedMessage());
+        }
+        boolean json = MessageUtils.isJson(message);
+        this.captureMessageData(player, message, json);
+        if (!message.equals(originalMessage)) {
+            packet = packet.shallowClone();
+            MessagePlace.SCOREBOARD_ENTRY.setMessage(packet, message, json);
+            event.setPacket(packet);
+        }
+        if (this.getPlugin().isSuppressDuplicateScoreboardEntries()) {
+            List<Object> packetValues = packet.getModifier().getValues();
+            if (packetValues.equals(cachedEntry.getLastPacketValues())) {
+                event.setCancelled(true);
+                return;
+            }
+            cachedEntry.setLastPacketValues(packetValues);
+        }
     }
 }
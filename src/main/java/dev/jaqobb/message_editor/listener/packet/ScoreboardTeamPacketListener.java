@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.listener.packet;
+
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.message.MessagePlace;
+import dev.jaqobb.message_editor.util.MessageUtils;
+import org.bukkit.entity.Player;
+import java.util.Map;
+import java.util.UUID;
+
+public final class ScoreboardTeamPacketListener extends CommonPacketListener {
+
+    public ScoreboardTeamPacketListener(MessageEditorPlugin plugin, MessagePlace messagePlace) {
+        super(plugin, messagePlace);
+    }
+
+    // Sidebar plugins update team prefixes and suffixes very often, so the last message of each team
+    // is remembered per player together with its edited message until the team is removed.
+    @Override
+    public void onPacketSending(PacketEvent event) {
+        if (event.isCancelled()) {
+            return;
+        }
+        PacketContainer packet = event.getPacket();
+        MessagePlace place = this.getMessagePlace();
+        Player player = event.getPlayer();
+        UUID viewer = player.getUniqueId();
+        String team = packet.getStrings().readSafely(0);
+        // 0 = create team
+        // 1 = remove team
+        // 2 = update team info
+        Integer mode = packet.getIntegers().readSafely(0);
+        if (mode == null) {
+            return;
+        }
+        if (mode == 1) {
+            this.getPlugin().uncacheScoreboardTeamMessage(viewer, place, team);
+            return;
+        }
+        if (mode != 0 && mode != 2) {
+            return;
+        }
+        String originalMessage = place.getMessage(packet);
+        if (originalMessage == null) {
+            return;
+        }
+        Map.Entry<String, String> cachedMessage = this.getPlugin().getCachedScoreboardTeamMessage(viewer, place, team);
+        String editedMessage;
+        if (cachedMessage != null && cachedMessage.getKey().equals(originalMessage)) {
+            editedMessage = cachedMessage.getValue();
+        } else {
+            editedMessage = this.findEditedMessage(originalMessage);
+            this.getPlugin().cacheScoreboardTeamMessage(viewer, place, team, originalMessage, editedMessage);
+        }
+        String message = originalMessage;
+        if (editedMessage != null) {
+            message = this.getPlugin().setPlaceholders(player, editedMessage);
+        }
+        boolean json = MessageUtils.isJson(message);
+        this.captureMessageData(player, message, json);
+        if (!message.equals(originalMessage)) {
+            // Team info is kept in a separate structure since 1.17, which is shared by shallow copies.
+            packet = packet.deepClone();
+            place.setMessage(packet, message, json);
+            event.setPacket(packet);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.listener.packet;
+
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
+import com.comphenix.protocol.wrappers.WrappedChatComponent;
+import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.message.CachedComponentMessage;
+import dev.jaqobb.message_editor.message.MessagePlace;
+import dev.jaqobb.message_editor.util.MessageUtils;
+import org.bukkit.entity.Player;
+import java.util.UUID;
+
+public final class TabListPacketListener extends CommonPacketListener {
+
+    private static final String KEY = "";
+
+    public TabListPacketListener(MessageEditorPlugin plugin, MessagePlace messagePlace) {
+        super(plugin, messagePlace);
+    }
+
+    // Animated tab lists resend their header and footer very often, so the last header and footer
+    // are remembered per player together with their edited messages.
+    @Override
+    public void onPacketSending(PacketEvent event) {
+        if (event.isCancelled()) {
+            return;
+        }
+        MessagePlace place = this.getMessagePlace();
+        PacketContainer packet = event.getPacket();
+        WrappedChatComponent component = packet.getChatComponents().readSafely(place == MessagePlace.TAB_LIST_HEADER ? 0 : 1);
+        if (component == null) {
+            return;
+        }
+        Player player = event.getPlayer();
+        UUID viewer = player.getUniqueId();
+        Object handle = component.getHandle();
+        CachedComponentMessage cachedMessage = this.getPlugin().getCachedComponentMessage(viewer, place, KEY);
+        if (cachedMessage == null || !cachedMessage.matches(handle)) {
+            String originalMessage = component.getJson();
+            cachedMessage = new CachedComponentMessage(handle, originalMessage, this.findEditedMessage(originalMessage));
+            this.getPlugin().cacheComponentMessage(viewer, place, KEY, cachedMessage);
+        }
+        String originalMessage = cachedMessage.getMessage();
+        String message = originalMessage;
+        if (cachedMessage.getEditedMessage() != null) {
+            message = this.getPlugin().setPlaceholders(player, cachedMessage.getEditedMessage());
+        }
+        boolean json = MessageUtils.isJson(message);
+        this.captureMessageData(player, message, json);
+        if (!message.equals(originalMessage)) {
+            packet = packet.shallowClone();
+            place.setMessage(packet, message, json);
+            event.setPacket(packet);
+        }
+    }
+}
@@ -162,8 +162,7 @@ public final class PlayerInventoryClickListener implements Listener {
             }
             MessagePlace newMessagePlace = editData.getNewMessagePlace();
             MessageEdit edit = new MessageEdit(oldMessagePatternString, oldMessagePlace, newMessage, newMessagePlace);
-            this.plugin.addMessageEdit(edit);
-            this.plugin.clearCachedMessages();
+            this.plugin.addMessageEdit(file.getName(), edit);
             try {
                 if (file.createNewFile()) {
                     YamlConfiguration configuration = YamlConfiguration.loadConfiguration(file);
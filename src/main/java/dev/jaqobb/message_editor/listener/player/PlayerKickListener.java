@@ -41,5 +41,10 @@ public final class PlayerKickListener implements Listener {
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerKick(PlayerKickEvent event) {
         this.plugin.removeCurrentMessageEditData(event.getPlayer().getUniqueId());
+        this.plugin.clearCachedEntityNames(event.getPlayer().getUniqueId());
+        this.plugin.clearCachedBossBarTitles(event.getPlayer().getUniqueId());
+        this.plugin.clearCachedComponentMessages(event.getPlayer().getUniqueId());
+        this.plugin.clearCachedScoreboardEntries(event.getPlayer().getUniqueId());
+        this.plugin.clearCachedScoreboardTeamMessages(event.getPlayer().getUniqueId());
     }
 }
@@ -0,0 +1,131 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.message;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Edits and their per-place lookups as of a single point in time. Snapshots are never modified,
+// changing edits creates a new snapshot with the next generation that replaces the current one.
+public final class EditSnapshot {
+
+    private final long generation;
+    private final List<MessageEdit> configEdits;
+    private final Map<String, MessageEdit> fileEdits;
+    private final List<MessageEdit> edits;
+    private final Map<MessageEdit, Integer> editPositions;
+    private final Map<MessagePlace, MessageEditLookup> lookups;
+
+    private EditSnapshot(long generation, List<MessageEdit> configEdits, Map<String, MessageEdit> fileEdits, List<MessageEdit> edits, Map<MessagePlace, MessageEditLookup> lookups) {
+        this.generation = generation;
+        this.configEdits = configEdits;
+        this.fileEdits = fileEdits;
+        this.edits = edits;
+        // Edits do not override equals, so they are told apart by identity.
+        this.editPositions = new IdentityHashMap<>(edits.size() * 2);
+        for (int index = 0; index < edits.size(); index += 1) {
+            this.editPositions.put(edits.get(index), index);
+        }
+        this.lookups = lookups;
+    }
+
+    // Edits from the configuration come first, followed by edits from files in the order of the given map,
+    // so a file that is loaded again keeps its position as long as it is put under the same name.
+    // Each place gets its own array of edits that can be applied to it (including the ones without a place)
+    // in their original order, so listeners do not have to skip edits meant for other places.
+    // Lore lines are the only exception and only get edits meant for them, as edits without a place
+    // already apply to the whole lore.
+    public static EditSnapshot create(long generation, List<MessageEdit> configEdits, Map<String, MessageEdit> fileEdits, long unmatchedMessagesCacheSize) {
+        List<MessageEdit> snapshotConfigEdits = Collections.unmodifiableList(new ArrayList<>(configEdits));
+        Map<String, MessageEdit> snapshotFileEdits = Collections.unmodifiableMap(new LinkedHashMap<>(fileEdits));
+        List<MessageEdit> edits = new ArrayList<>(snapshotConfigEdits.size() + snapshotFileEdits.size());
+        edits.addAll(snapshotConfigEdits);
+        edits.addAll(snapshotFileEdits.values());
+        Map<MessagePlace, MessageEditLookup> lookups = new EnumMap<>(MessagePlace.class);
+        for (MessagePlace place : MessagePlace.VALUES) {
+            List<MessageEdit> placeEdits = new ArrayList<>();
+            for (MessageEdit edit : edits) {
+                MessagePlace editPlace = MessagePlace.resolve(edit.getMessageBeforePlace());
+                if ((editPlace == null && place != MessagePlace.INVENTORY_ITEM_LORE_LINE) || editPlace == place) {
+                    placeEdits.add(edit);
+                }
+            }
+            lookups.put(place, new MessageEditLookup(placeEdits.toArray(new MessageEdit[0]), unmatchedMessagesCacheSize));
+        }
+        return new EditSnapshot(generation, snapshotConfigEdits, snapshotFileEdits, Collections.unmodifiableList(edits), Collections.unmodifiableMap(lookups));
+    }
+
+    // Creates the snapshot that follows this one, carrying over messages known not to match any edit.
+    public EditSnapshot next(List<MessageEdit> configEdits, Map<String, MessageEdit> fileEdits, Collection<MessageEdit> addedEdits, long unmatchedMessagesCacheSize) {
+        EditSnapshot snapshot = create(this.generation + 1L, configEdits, fileEdits, unmatchedMessagesCacheSize);
+        Set<MessageEdit> added = Collections.newSetFromMap(new IdentityHashMap<>());
+        added.addAll(addedEdits);
+        for (MessagePlace place : MessagePlace.VALUES) {
+            snapshot.getLookup(place).inheritUnmatchedMessages(this.getLookup(place), added);
+        }
+        return snapshot;
+    }
+
+    public long getGeneration() {
+        return this.generation;
+    }
+
+    public List<MessageEdit> getConfigEdits() {
+        return this.configEdits;
+    }
+
+    public Map<String, MessageEdit> getFileEdits() {
+        return this.fileEdits;
+    }
+
+    public List<MessageEdit> getEdits() {
+        return this.edits;
+    }
+
+    public boolean contains(MessageEdit edit) {
+        return this.editPositions.containsKey(edit);
+    }
+
+    // Returns the position of the given edit (edits with lower positions take precedence) or -1 if it is not part of this snapshot.
+    public int getPosition(MessageEdit edit) {
+        Integer position = this.editPositions.get(edit);
+        return position == null ? -1 : position;
+    }
+
+    public MessageEdit[] getEdits(MessagePlace place) {
+        return this.lookups.get(place).getEdits();
+    }
+
+    public MessageEditLookup getLookup(MessagePlace place) {
+        return this.lookups.get(place);
+    }
+}
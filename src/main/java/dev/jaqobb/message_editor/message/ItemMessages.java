@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.message;
+
+public final class ItemMessages {
+
+    public static final ItemMessages UNCHANGED = new ItemMessages(null, false, null, false);
+
+    private final String name;
+    private final boolean nameEdited;
+    private final String lore;
+    private final boolean loreEdited;
+
+    public ItemMessages(String name, boolean nameEdited, String lore, boolean loreEdited) {
+        this.name = name;
+        this.nameEdited = nameEdited;
+        this.lore = lore;
+        this.loreEdited = loreEdited;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public boolean isNameEdited() {
+        return this.nameEdited;
+    }
+
+    public String getLore() {
+        return this.lore;
+    }
+
+    public boolean isLoreEdited() {
+        return this.loreEdited;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.message;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// Edits loaded from files are stored in a binary index together with the last modification time and size
+// of their files, so on the next start only files that have changed since have to be parsed as YAML.
+public final class MessageEditIndex {
+
+    public static final MessageEditIndex EMPTY = new MessageEditIndex(Collections.emptyMap());
+
+    private static final int MAGIC = 0x4D45494E;
+    private static final int VERSION = 1;
+    // File name, modification time, size, pattern, replacement and both places.
+    private static final int MINIMUM_ENTRY_LENGTH = 4 + 8 + 8 + 4 + 4 + 4 + 4;
+
+    private final Map<String, Entry> entries;
+
+    public MessageEditIndex(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    // Returns the indexed edit of the given file or null if the file is not indexed or has changed since.
+    public MessageEdit getEdit(String fileName, long lastModified, long length) {
+        Entry entry = this.entries.get(fileName);
+        if (entry == null || entry.lastModified != lastModified || entry.length != length) {
+            return null;
+        }
+        return entry.edit;
+    }
+
+    // A corrupt index (sizes that do not fit the file, patterns that do not compile) is reported as an IOException,
+    // as it is only a cache that can be rebuilt from the edit files.
+    public static MessageEditIndex read(File file) throws IOException {
+        if (!file.exists()) {
+            return EMPTY;
+        }
+        long fileLength = file.length();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                return EMPTY;
+            }
+            int size = input.readInt();
+            if (size < 0 || size > fileLength / MINIMUM_ENTRY_LENGTH) {
+                throw new IOException("Invalid amount of indexed edits: " + size);
+            }
+            Map<String, Entry> entries = new HashMap<>(size * 4 / 3 + 1);
+            for (int index = 0; index < size; index += 1) {
+                String fileName = readString(input, fileLength);
+                long lastModified = input.readLong();
+                long length = input.readLong();
+                String messageBeforePattern = readString(input, fileLength);
+                MessagePlace messageBeforePlace = readPlace(input, fileLength);
+                String messageAfter = readString(input, fileLength);
+                MessagePlace messageAfterPlace = readPlace(input, fileLength);
+                MessageEdit edit = new MessageEdit(messageBeforePattern, messageBeforePlace, messageAfter, messageAfterPlace);
+                entries.put(fileName, new Entry(lastModified, length, edit));
+            }
+            return new MessageEditIndex(entries);
+        } catch (RuntimeException exception) {
+            throw new IOException("Invalid indexed edit.", exception);
+        }
+    }
+
+    // The index is written next to the old one first, so a crash while writing never leaves a broken index behind.
+    // Every write uses its own temporary file, so overlapping reloads never write into the same file.
+    public void write(File file) throws IOException {
+        Path temporaryFile = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+        try {
+            this.write(temporaryFile, file.toPath());
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private void write(Path temporaryFile, Path file) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile.toFile())))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(this.entries.size());
+            for (Map.Entry<String, Entry> fileEntry : this.entries.entrySet()) {
+                Entry entry = fileEntry.getValue();
+                MessageEdit edit = entry.edit;
+                writeString(output, fileEntry.getKey());
+                output.writeLong(entry.lastModified);
+                output.writeLong(entry.length);
+                writeString(output, edit.getMessageBefore());
+                writePlace(output, edit.getMessageBeforePlace());
+                writeString(output, edit.getMessageAfter());
+                writePlace(output, edit.getMessageAfterPlace());
+            }
+        }
+        try {
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException exception) {
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Strings are written as UTF-8 bytes prefixed with their length, as replacements can be longer than writeUTF allows.
+    private static String readString(DataInputStream input, long fileLength) throws IOException {
+        int length = input.readInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > fileLength) {
+            throw new IOException("Invalid indexed string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        if (string == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static MessagePlace readPlace(DataInputStream input, long fileLength) throws IOException {
+        String name = readString(input, fileLength);
+        return name == null ? null : MessagePlace.fromName(name);
+    }
+
+    private static void writePlace(DataOutputStream output, MessagePlace place) throws IOException {
+        writeString(output, place == null ? null : place.name());
+    }
+
+    public static final class Entry {
+
+        private final long lastModified;
+        private final long length;
+        private final MessageEdit edit;
+
+        public Entry(long lastModified, long length, MessageEdit edit) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.edit = edit;
+        }
+
+        public long getLastModified() {
+            return this.lastModified;
+        }
+
+        public long getLength() {
+            return this.length;
+        }
+
+        public MessageEdit getEdit() {
+            return this.edit;
+        }
+    }
+}
@@ -0,0 +1,561 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.message;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.regex.Matcher;
+
+// Message edits are matched against every outgoing message, so instead of running every pattern
+// one after another, literal parts that each pattern requires are extracted once and searched for
+// in a single pass (Aho-Corasick). Only edits whose literals are all present have their pattern run.
+public final class MessageEditLookup {
+
+    private static final int[] NO_OUTPUTS = new int[0];
+
+    private final MessageEdit[] edits;
+    private final String[] editPrefixes;
+    private final int[] editLiterals;
+    private final int literalCount;
+    private final List<char[]> nodeCharacters;
+    private final List<int[]> nodeTargets;
+    private final int[] nodeFailures;
+    private final int[][] nodeOutputs;
+    // Messages that are known not to match any edit. A new lookup is created every time edits change
+    // and only takes over the messages that none of the added edits match.
+    private final long unmatchedMessagesCacheSize;
+    private Cache<String, Boolean> unmatchedMessages;
+
+    public MessageEditLookup(MessageEdit[] edits, long unmatchedMessagesCacheSize) {
+        int size = edits.length;
+        this.edits = edits;
+        this.editPrefixes = new String[size];
+        this.editLiterals = new int[size];
+        Map<String, Integer> literalIds = new HashMap<>();
+        for (int index = 0; index < size; index += 1) {
+            MessageEdit edit = this.edits[index];
+            String[] literals = extractLiterals(edit.getMessageBefore());
+            this.editPrefixes[index] = literals[0];
+            String literal = literals[1];
+            if (literal.isEmpty()) {
+                this.editLiterals[index] = -1;
+                continue;
+            }
+            Integer literalId = literalIds.get(literal);
+            if (literalId == null) {
+                literalId = literalIds.size();
+                literalIds.put(literal, literalId);
+            }
+            this.editLiterals[index] = literalId;
+        }
+        this.literalCount = literalIds.size();
+        List<char[]> characters = new ArrayList<>();
+        List<int[]> targets = new ArrayList<>();
+        List<int[]> outputs = new ArrayList<>();
+        characters.add(new char[0]);
+        targets.add(new int[0]);
+        outputs.add(NO_OUTPUTS);
+        for (Map.Entry<String, Integer> entry : literalIds.entrySet()) {
+            String literal = entry.getKey();
+            int node = 0;
+            for (int index = 0; index < literal.length(); index += 1) {
+                char character = literal.charAt(index);
+                int next = findTarget(characters.get(node), targets.get(node), character);
+                if (next == -1) {
+                    next = characters.size();
+                    characters.add(new char[0]);
+                    targets.add(new int[0]);
+                    outputs.add(NO_OUTPUTS);
+                    addTarget(characters, targets, node, character, next);
+                }
+                node = next;
+            }
+            outputs.set(node, append(outputs.get(node), entry.getValue()));
+        }
+        int[] failures = new int[characters.size()];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int target : targets.get(0)) {
+            failures[target] = 0;
+            queue.add(target);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            char[] nodeCharacters = characters.get(node);
+            int[] nodeTargets = targets.get(node);
+            for (int index = 0; index < nodeCharacters.length; index += 1) {
+                char character = nodeCharacters[index];
+                int target = nodeTargets[index];
+                int failure = failures[node];
+                int failureTarget;
+                while ((failureTarget = findTarget(characters.get(failure), targets.get(failure), character)) == -1 && failure != 0) {
+                    failure = failures[failure];
+                }
+                failures[target] = failureTarget == -1 ? 0 : failureTarget;
+                int[] failureOutputs = outputs.get(failures[target]);
+                for (int output : failureOutputs) {
+                    outputs.set(target, append(outputs.get(target), output));
+                }
+                queue.add(target);
+            }
+        }
+        this.nodeCharacters = characters;
+        this.nodeTargets = targets;
+        this.nodeFailures = failures;
+        this.nodeOutputs = outputs.toArray(new int[0][]);
+        this.unmatchedMessagesCacheSize = unmatchedMessagesCacheSize;
+        if (size > 0 && unmatchedMessagesCacheSize > 0L) {
+            this.unmatchedMessages = CacheBuilder.newBuilder()
+                .maximumSize(unmatchedMessagesCacheSize)
+                .build();
+        } else {
+            this.unmatchedMessages = null;
+        }
+    }
+
+    // Removing edits never makes an unmatched message match, so only messages that one of the added edits
+    // (applicable to this lookup) matches have to be matched again. Must be called before the lookup is published.
+    public void inheritUnmatchedMessages(MessageEditLookup previous, Collection<MessageEdit> addedEdits) {
+        if (this.unmatchedMessages == null || previous.unmatchedMessages == null) {
+            return;
+        }
+        int[] addedIndexes = new int[0];
+        for (int index = 0; index < this.edits.length; index += 1) {
+            if (addedEdits.contains(this.edits[index])) {
+                addedIndexes = append(addedIndexes, index);
+            }
+        }
+        if (addedIndexes.length == 0 && previous.unmatchedMessagesCacheSize == this.unmatchedMessagesCacheSize) {
+            // None of the added edits applies here, so the previous messages are still unmatched and the cache can be shared.
+            this.unmatchedMessages = previous.unmatchedMessages;
+            return;
+        }
+        for (String message : previous.unmatchedMessages.asMap().keySet()) {
+            if (!this.matchesAny(addedIndexes, message)) {
+                this.unmatchedMessages.put(message, Boolean.TRUE);
+            }
+        }
+    }
+
+    public MessageEdit[] getEdits() {
+        return this.edits.clone();
+    }
+
+    public int size() {
+        return this.edits.length;
+    }
+
+    public Map.Entry<MessageEdit, Matcher> find(String message) {
+        if (this.edits.length == 0) {
+            return null;
+        }
+        if (this.unmatchedMessages != null && this.unmatchedMessages.getIfPresent(message) != null) {
+            return null;
+        }
+        long[] foundLiterals = this.findLiterals(message);
+        for (int index = 0; index < this.edits.length; index += 1) {
+            if (!this.isCandidate(index, foundLiterals, message)) {
+                continue;
+            }
+            MessageEdit edit = this.edits[index];
+            Matcher matcher = edit.getMatcher(message);
+            if (matcher != null) {
+                return new AbstractMap.SimpleImmutableEntry<>(edit, matcher);
+            }
+        }
+        if (this.unmatchedMessages != null) {
+            this.unmatchedMessages.put(message, Boolean.TRUE);
+        }
+        return null;
+    }
+
+    private boolean matchesAny(int[] indexes, String message) {
+        if (indexes.length == 0) {
+            return false;
+        }
+        long[] foundLiterals = this.findLiterals(message);
+        for (int index : indexes) {
+            if (this.isCandidate(index, foundLiterals, message) && this.edits[index].getMatcher(message) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isCandidate(int index, long[] foundLiterals, String message) {
+        int literal = this.editLiterals[index];
+        if (literal != -1 && (foundLiterals[literal >>> 6] & (1L << literal)) == 0L) {
+            return false;
+        }
+        return message.startsWith(this.editPrefixes[index]);
+    }
+
+    private long[] findLiterals(String message) {
+        long[] foundLiterals = new long[(this.literalCount + 63) >>> 6];
+        if (this.literalCount == 0) {
+            return foundLiterals;
+        }
+        int node = 0;
+        for (int index = 0; index < message.length(); index += 1) {
+            char character = message.charAt(index);
+            int target;
+            while ((target = findTarget(this.nodeCharacters.get(node), this.nodeTargets.get(node), character)) == -1 && node != 0) {
+                node = this.nodeFailures[node];
+            }
+            node = target == -1 ? 0 : target;
+            for (int output : this.nodeOutputs[node]) {
+                foundLiterals[output >>> 6] |= 1L << output;
+            }
+        }
+        return foundLiterals;
+    }
+
+    private static int findTarget(char[] characters, int[] targets, char character) {
+        int index = Arrays.binarySearch(characters, character);
+        return index < 0 ? -1 : targets[index];
+    }
+
+    private static void addTarget(List<char[]> characters, List<int[]> targets, int node, char character, int target) {
+        char[] oldCharacters = characters.get(node);
+        int[] oldTargets = targets.get(node);
+        int position = -(Arrays.binarySearch(oldCharacters, character) + 1);
+        char[] newCharacters = new char[oldCharacters.length + 1];
+        int[] newTargets = new int[oldTargets.length + 1];
+        System.arraycopy(oldCharacters, 0, newCharacters, 0, position);
+        System.arraycopy(oldTargets, 0, newTargets, 0, position);
+        newCharacters[position] = character;
+        newTargets[position] = target;
+        System.arraycopy(oldCharacters, position, newCharacters, position + 1, oldCharacters.length - position);
+        System.arraycopy(oldTargets, position, newTargets, position + 1, oldTargets.length - position);
+        characters.set(node, newCharacters);
+        targets.set(node, newTargets);
+    }
+
+    private static int[] append(int[] array, int value) {
+        for (int element : array) {
+            if (element == value) {
+                return array;
+            }
+        }
+        int[] newArray = Arrays.copyOf(array, array.length + 1);
+        newArray[array.length] = value;
+        return newArray;
+    }
+
+    // Returns the literal prefix and the longest literal that every message matching
+    // the given pattern has to start with and contain respectively. Both are empty
+    // when the pattern cannot be safely analyzed (alternations, inline flags and such),
+    // so the edit is always checked.
+    static String[] extractLiterals(String pattern) {
+        try {
+            return extractLiteralsUnchecked(pattern);
+        } catch (RuntimeException exception) {
+            // Constructs the extractor does not understand must never make it skip an edit.
+            return new String[] {"", ""};
+        }
+    }
+
+    private static String[] extractLiteralsUnchecked(String pattern) {
+        String[] none = {"", ""};
+        String prefix = null;
+        String longest = "";
+        StringBuilder run = new StringBuilder();
+        int depth = 0;
+        int index = 0;
+        int length = pattern.length();
+        while (index < length) {
+            char character = pattern.charAt(index);
+            if (character == '\\') {
+                if (index + 1 >= length) {
+                    return none;
+                }
+                char escaped = pattern.charAt(index + 1);
+                if (escaped == 'Q') {
+                    int end = pattern.indexOf("\\E", index + 2);
+                    String quoted = end == -1 ? pattern.substring(index + 2) : pattern.substring(index + 2, end);
+                    index = end == -1 ? length : end + 2;
+                    if (depth > 0) {
+                        continue;
+                    }
+                    for (int quotedIndex = 0; quotedIndex < quoted.length(); quotedIndex += 1) {
+                        run.append(quoted.charAt(quotedIndex));
+                    }
+                    if (!quoted.isEmpty()) {
+                        index = applyQuantifier(pattern, index, run);
+                        if (index < 0) {
+                            index = -index;
+                            prefix = finishRun(run, prefix);
+                            longest = longer(longest, run);
+                            run.setLength(0);
+                        }
+                    }
+                    continue;
+                }
+                if (Character.isLetterOrDigit(escaped)) {
+                    index = skipEscape(pattern, index + 1);
+                    if (index == -1) {
+                        return none;
+                    }
+                    if (depth == 0) {
+                        prefix = finishRun(run, prefix);
+                        longest = longer(longest, run);
+                        run.setLength(0);
+                    }
+                    continue;
+                }
+                index += 2;
+                if (depth > 0) {
+                    continue;
+                }
+                run.append(escaped);
+            } else if (character == '[') {
+                index = skipCharacterClass(pattern, index);
+                if (index == -1) {
+                    return none;
+                }
+                if (depth == 0) {
+                    prefix = finishRun(run, prefix);
+                    longest = longer(longest, run);
+                    run.setLength(0);
+                }
+                continue;
+            } else if (character == '(') {
+                if (index + 2 < length && pattern.charAt(index + 1) == '?') {
+                    char groupType = pattern.charAt(index + 2);
+                    if (groupType != ':' && groupType != '<' && groupType != '=' && groupType != '!' && groupType != '>') {
+                        // Inline flags (such as (?i)) change how literals are matched.
+                        return none;
+                    }
+                }
+                if (depth == 0) {
+                    prefix = finishRun(run, prefix);
+                    longest = longer(longest, run);
+                    run.setLength(0);
+                }
+                depth += 1;
+                index += 1;
+                continue;
+            } else if (character == ')') {
+                depth -= 1;
+                index += 1;
+                if (depth < 0) {
+                    return none;
+                }
+                continue;
+            } else if (character == '|') {
+                if (depth == 0) {
+                    return none;
+                }
+                index += 1;
+                continue;
+            } else if (character == '?' || character == '*' || character == '+' || character == '{') {
+                // Quantifier following a group or a character class.
+                index = skipQuantifier(pattern, index);
+                if (index == -1) {
+                    return none;
+                }
+                continue;
+            } else if (character == '.' || character == '^' || character == '$') {
+                index += 1;
+                if (depth == 0) {
+                    prefix = finishRun(run, prefix);
+                    longest = longer(longest, run);
+                    run.setLength(0);
+                }
+                continue;
+            } else {
+                index += 1;
+                if (depth > 0) {
+                    continue;
+                }
+                run.append(character);
+            }
+            index = applyQuantifier(pattern, index, run);
+            if (index < 0) {
+                index = -index;
+                prefix = finishRun(run, prefix);
+                longest = longer(longest, run);
+                run.setLength(0);
+            }
+        }
+        if (depth != 0) {
+            return none;
+        }
+        prefix = finishRun(run, prefix);
+        longest = longer(longest, run);
+        return new String[] {prefix, longest};
+    }
+
+    // Returns the index after the quantifier (if any) that follows the last character of the given run.
+    // A negative index means that the run has to be finished.
+    private static int applyQuantifier(String pattern, int index, StringBuilder run) {
+        if (index >= pattern.length()) {
+            return index;
+        }
+        char character = pattern.charAt(index);
+        if (character != '?' && character != '*' && character != '+' && character != '{') {
+            return index;
+        }
+        if (character != '+' && (character != '{' || !requiresOne(pattern, index))) {
+            run.setLength(run.length() - 1);
+        }
+        int end = skipQuantifier(pattern, index);
+        if (end == -1) {
+            // The pattern would not compile anyway.
+            run.setLength(0);
+            return -pattern.length();
+        }
+        return -end;
+    }
+
+    private static boolean requiresOne(String pattern, int index) {
+        int number = 0;
+        boolean digits = false;
+        for (int current = index + 1; current < pattern.length(); current += 1) {
+            char character = pattern.charAt(current);
+            if (character < '0' || character > '9') {
+                break;
+            }
+            digits = true;
+            number = Math.min(number * 10 + (character - '0'), 1000);
+        }
+        return digits && number > 0;
+    }
+
+    private static int skipQuantifier(String pattern, int index) {
+        int current = index;
+        if (pattern.charAt(current) == '{') {
+            current = pattern.indexOf('}', current);
+            if (current == -1) {
+                return -1;
+            }
+        }
+        current += 1;
+        if (current < pattern.length() && (pattern.charAt(current) == '?' || pattern.charAt(current) == '+')) {
+            current += 1;
+        }
+        return current;
+    }
+
+    // Skips an escape sequence starting with a letter or a digit, index points to the character after the backslash.
+    private static int skipEscape(String pattern, int index) {
+        int length = pattern.length();
+        char escaped = pattern.charAt(index);
+        int current = index + 1;
+        if (escaped == 'p' || escaped == 'P' || escaped == 'x' || escaped == 'N') {
+            if (current < length && pattern.charAt(current) == '{') {
+                int end = pattern.indexOf('}', current);
+                return end == -1 ? -1 : end + 1;
+            }
+            return escaped == 'x' ? current + 2 : current + 1;
+        }
+        if (escaped == 'k') {
+            int end = pattern.indexOf('>', current);
+            return end == -1 ? -1 : end + 1;
+        }
+        if (escaped == 'u') {
+            return current + 4;
+        }
+        if (escaped == 'c') {
+            return current + 1;
+        }
+        if (escaped == '0') {
+            while (current < length && current < index + 4 && pattern.charAt(current) >= '0' && pattern.charAt(current) <= '7') {
+                current += 1;
+            }
+            return current;
+        }
+        if (escaped >= '1' && escaped <= '9') {
+            while (current < length && Character.isDigit(pattern.charAt(current))) {
+                current += 1;
+            }
+            return current;
+        }
+        return current;
+    }
+
+    // A ']' right after '[' or '[^' is a member of the class rather than its end.
+    private static int skipCharacterClass(String pattern, int index) {
+        int length = pattern.length();
+        int depth = 0;
+        int current = index;
+        while (current < length) {
+            char character = pattern.charAt(current);
+            if (character == '[') {
+                depth += 1;
+                current += 1;
+                if (current < length && pattern.charAt(current) == '^') {
+                    current += 1;
+                }
+                if (current < length && pattern.charAt(current) == ']') {
+                    current += 1;
+                }
+                continue;
+            }
+            if (character == '\\') {
+                if (current + 1 < length && pattern.charAt(current + 1) == 'Q') {
+                    int end = pattern.indexOf("\\E", current + 2);
+                    if (end == -1) {
+                        return -1;
+                    }
+                    current = end + 2;
+                    continue;
+                }
+                current += 2;
+                continue;
+            }
+            if (character == ']') {
+                depth -= 1;
+                if (depth == 0) {
+                    return current + 1;
+                }
+            }
+            current += 1;
+        }
+        return -1;
+    }
+
+    private static String finishRun(StringBuilder run, String prefix) {
+        if (prefix != null) {
+            return prefix;
+        }
+        return run.toString();
+    }
+
+    private static String longer(String longest, StringBuilder run) {
+        if (run.length() > longest.length()) {
+            return run.toString();
+        }
+        return longest;
+    }
+}
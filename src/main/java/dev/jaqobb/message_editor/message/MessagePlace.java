@@ -25,12 +25,12 @@
 package dev.jaqobb.message_editor.message;
 
 import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.events.InternalStructure;
 import com.comphenix.protocol.events.PacketContainer;
 import com.comphenix.protocol.utility.MinecraftVersion;
 import com.comphenix.protocol.wrappers.EnumWrappers;
 import com.comphenix.protocol.wrappers.WrappedChatComponent;
-import com.comphenix.protocol.wrappers.WrappedDataValue;
-import com.comphenix.protocol.wrappers.WrappedWatchableObject;
+import dev.jaqobb.message_editor.util.EntityMetadataUtils;
 import dev.jaqobb.message_editor.util.MessageUtils;
 import net.md_5.bungee.api.chat.BaseComponent;
 import net.md_5.bungee.chat.ComponentSerializer;
@@ -96,7 +96,7 @@ public enum MessagePlace {
             if (json) {
                 packet.getChatComponents().write(0, WrappedChatComponent.fromJson(message));
             } else {
-                packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true)));
+                packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.legacyToJson(message)));
             }
         }
     },
@@ -111,7 +111,7 @@ public enum MessagePlace {
             if (json) {
                 packet.getChatComponents().write(0, WrappedChatComponent.fromJson(message));
             } else {
-                packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true)));
+                packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.legacyToJson(message)));
             }
         }
     },
@@ -130,13 +130,14 @@ public enum MessagePlace {
                 if (json) {
                     packet.getChatComponents().write(0, WrappedChatComponent.fromJson(message));
                 } else {
-                    packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true)));
+                    packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.legacyToJson(message)));
                 }
+                return;
             }
             if (json) {
                 packet.getStructures().readSafely(1).getChatComponents().write(0, WrappedChatComponent.fromJson(message));
             } else {
-                packet.getStructures().readSafely(1).getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true)));
+                packet.getStructures().readSafely(1).getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.legacyToJson(message)));
             }
         }
     },
@@ -158,7 +159,7 @@ public enum MessagePlace {
             if (json) {
                 packet.getChatComponents().write(0, WrappedChatComponent.fromJson(message));
             } else {
-                packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true)));
+                packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.legacyToJson(message)));
             }
         }
     },
@@ -177,6 +178,39 @@ public enum MessagePlace {
             }
         }
     },
+    SCOREBOARD_TEAM_DISPLAY_NAME("STD", "Scoreboard Team Display Name", MinecraftVersion.AQUATIC_UPDATE, Collections.singleton(PacketType.Play.Server.SCOREBOARD_TEAM)) {
+        @Override
+        public String getMessage(PacketContainer packet) {
+            return getTeamMessage(packet, 0);
+        }
+
+        @Override
+        public void setMessage(PacketContainer packet, String message, boolean json) {
+            setTeamMessage(packet, 0, message, json);
+        }
+    },
+    SCOREBOARD_TEAM_PREFIX("STP", "Scoreboard Team Prefix", MinecraftVersion.AQUATIC_UPDATE, Collections.singleton(PacketType.Play.Server.SCOREBOARD_TEAM)) {
+        @Override
+        public String getMessage(PacketContainer packet) {
+            return getTeamMessage(packet, 1);
+        }
+
+        @Override
+        public void setMessage(PacketContainer packet, String message, boolean json) {
+            setTeamMessage(packet, 1, message, json);
+        }
+    },
+    SCOREBOARD_TEAM_SUFFIX("STS", "Scoreboard Team Suffix", MinecraftVersion.AQUATIC_UPDATE, Collections.singleton(PacketType.Play.Server.SCOREBOARD_TEAM)) {
+        @Override
+        public String getMessage(PacketContainer packet) {
+            return getTeamMessage(packet, 2);
+        }
+
+        @Override
+        public void setMessage(PacketContainer packet, String message, boolean json) {
+            setTeamMessage(packet, 2, message, json);
+        }
+    },
     INVENTORY_TITLE("IT", "Inventory Title", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Play.Server.OPEN_WINDOW)) {
         @Override
         public String getMessage(PacketContainer packet) {
@@ -188,11 +222,11 @@ public enum MessagePlace {
             if (json) {
                 packet.getChatComponents().write(0, WrappedChatComponent.fromJson(message));
             } else {
-                packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true)));
+                packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.legacyToJson(message)));
             }
         }
     },
-    INVENTORY_ITEM_NAME("ITN", "Inventory Item Name", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Play.Server.WINDOW_ITEMS)) {
+    INVENTORY_ITEM_NAME("ITN", "Inventory Item Name", MinecraftVersion.BOUNTIFUL_UPDATE, new HashSet<>(Arrays.asList(PacketType.Play.Server.WINDOW_ITEMS, PacketType.Play.Server.SET_SLOT))) {
         // Items are an exception and do not use this.
         @Override
         public String getMessage(PacketContainer packet) {
@@ -205,7 +239,7 @@ public enum MessagePlace {
             throw new UnsupportedOperationException();
         }
     },
-    INVENTORY_ITEM_LORE("ITL", "Inventory Item Lore", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Play.Server.WINDOW_ITEMS)) {
+    INVENTORY_ITEM_LORE("ITL", "Inventory Item Lore", MinecraftVersion.BOUNTIFUL_UPDATE, new HashSet<>(Arrays.asList(PacketType.Play.Server.WINDOW_ITEMS, PacketType.Play.Server.SET_SLOT))) {
         // Items are an exception and do not use this.
         @Override
         public String getMessage(PacketContainer packet) {
@@ -218,94 +252,87 @@ public enum MessagePlace {
             throw new UnsupportedOperationException();
         }
     },
-    ENTITY_NAME("EN", "Entity Name", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Play.Server.ENTITY_METADATA)) {
+    INVENTORY_ITEM_LORE_LINE("ITLL", "Inventory Item Lore Line", MinecraftVersion.BOUNTIFUL_UPDATE, new HashSet<>(Arrays.asList(PacketType.Play.Server.WINDOW_ITEMS, PacketType.Play.Server.SET_SLOT))) {
+        // Items are an exception and do not use this.
         @Override
         public String getMessage(PacketContainer packet) {
-            if (MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
-                List<WrappedDataValue> dataValues = packet.getDataValueCollectionModifier().readSafely(0);
-                if (dataValues == null) {
-                    return null;
-                }
-                for (WrappedDataValue dataValue : dataValues) {
-                    if (dataValue.getIndex() != 2) {
-                        continue;
-                    }
-                    Object value = dataValue.getValue();
-                    if (!(value instanceof Optional)) {
-                        continue;
-                    }
-                    Optional<?> name = (Optional<?>) value;
-                    if (name.isPresent()) {
-                        Object nameValue = name.get();
-                        if (nameValue instanceof WrappedChatComponent) {
-                            return ((WrappedChatComponent) nameValue).getJson();
-                        } else {
-                            return WrappedChatComponent.fromHandle(nameValue).getJson();
-                        }
-                    }
-                }
+            throw new UnsupportedOperationException();
+        }
+
+        // Items are an exception and do not use this.
+        @Override
+        public void setMessage(PacketContainer packet, String message, boolean json) {
+            throw new UnsupportedOperationException();
+        }
+    },
+    TAB_LIST_HEADER("TLH", "Tab List Header", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Play.Server.PLAYER_LIST_HEADER_FOOTER)) {
+        @Override
+        public String getMessage(PacketContainer packet) {
+            WrappedChatComponent message = packet.getChatComponents().readSafely(0);
+            return message != null ? message.getJson() : null;
+        }
+
+        @Override
+        public void setMessage(PacketContainer packet, String message, boolean json) {
+            if (json) {
+                packet.getChatComponents().write(0, WrappedChatComponent.fromJson(message));
             } else {
-                List<WrappedWatchableObject> objects = packet.getWatchableCollectionModifier().readSafely(0);
-                if (objects == null) {
-                    return null;
-                }
-                for (WrappedWatchableObject object : objects) {
-                    if (object.getIndex() != 2) {
-                        continue;
-                    }
-                    Object value = object.getValue();
-                    if (!(value instanceof Optional)) {
-                        continue;
-                    }
-                    Optional<?> name = (Optional<?>) value;
-                    if (name.isPresent()) {
-                        Object nameValue = name.get();
-                        if (nameValue instanceof WrappedChatComponent) {
-                            return ((WrappedChatComponent) nameValue).getJson();
-                        } else {
-                            return WrappedChatComponent.fromHandle(nameValue).getJson();
-                        }
-                    }
-                }
+                packet.getChatComponents().write(0, WrappedChatComponent.fromJson(MessageUtils.legacyToJson(message)));
             }
-            return null;
+        }
+    },
+    TAB_LIST_FOOTER("TLF", "Tab List Footer", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Play.Server.PLAYER_LIST_HEADER_FOOTER)) {
+        @Override
+        public String getMessage(PacketContainer packet) {
+            WrappedChatComponent message = packet.getChatComponents().readSafely(1);
+            return message != null ? message.getJson() : null;
         }
 
         @Override
         public void setMessage(PacketContainer packet, String message, boolean json) {
-            if (MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
-                List<WrappedDataValue> dataValues = packet.getDataValueCollectionModifier().readSafely(0);
-                if (dataValues == null) {
-                    return;
-                }
-                for (WrappedDataValue dataValue : dataValues) {
-                    if (dataValue.getIndex() != 2) {
-                        continue;
-                    }
-                    if (json) {
-                        dataValue.setValue(Optional.of(WrappedChatComponent.fromJson(message)));
-                    } else {
-                        dataValue.setValue(Optional.of(WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true))));
-                    }
-                    return;
-                }
+            if (json) {
+                packet.getChatComponents().write(1, WrappedChatComponent.fromJson(message));
             } else {
-                List<WrappedWatchableObject> objects = packet.getWatchableCollectionModifier().readSafely(0);
-                if (objects == null) {
-                    return;
-                }
-                for (WrappedWatchableObject object : objects) {
-                    if (object.getIndex() != 2) {
-                        continue;
-                    }
-                    if (json) {
-                        object.setValue(Optional.of(WrappedChatComponent.fromJson(message).getHandle()));
-                    } else {
-                        object.setValue(Optional.of(WrappedChatComponent.fromJson(MessageUtils.toJson(MessageUtils.toBaseComponents(message), true)).getHandle()));
-                    }
-                    return;
-                }
+                packet.getChatComponents().write(1, WrappedChatComponent.fromJson(MessageUtils.legacyToJson(message)));
+            }
+        }
+    },
+    PLAYER_LIST_NAME("PLN", "Player List Name", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Play.Server.PLAYER_INFO)) {
+        // Player list names are an exception and do not use this.
+        @Override
+        public String getMessage(PacketContainer packet) {
+            throw new UnsupportedOperationException();
+        }
+
+        // Player list names are an exception and do not use this.
+        @Override
+        public void setMessage(PacketContainer packet, String message, boolean json) {
+            throw new UnsupportedOperationException();
+        }
+    },
+    ENTITY_NAME("EN", "Entity Name", MinecraftVersion.BOUNTIFUL_UPDATE, Collections.singleton(PacketType.Play.Server.ENTITY_METADATA)) {
+        @Override
+        public String getMessage(PacketContainer packet) {
+            List<?> metadata = EntityMetadataUtils.getMetadata(packet);
+            int position = EntityMetadataUtils.findCustomName(metadata);
+            if (position == -1) {
+                return null;
+            }
+            Object name = EntityMetadataUtils.getCustomNameHandle(metadata, position);
+            if (name == null) {
+                return null;
+            }
+            return EntityMetadataUtils.getCustomName(name);
+        }
+
+        @Override
+        public void setMessage(PacketContainer packet, String message, boolean json) {
+            List<?> metadata = EntityMetadataUtils.getMetadata(packet);
+            int position = EntityMetadataUtils.findCustomName(metadata);
+            if (position == -1) {
+                return;
             }
+            EntityMetadataUtils.setCustomName(metadata, position, json ? message : MessageUtils.legacyToJson(message));
         }
     };
 
@@ -387,6 +414,35 @@ public enum MessagePlace {
 
     public abstract void setMessage(PacketContainer packet, String message, boolean json);
 
+    // Team display name, prefix and suffix are chat components since 1.13 and are stored
+    // in a separate structure that is only present when team info is sent since 1.17.
+    private static String getTeamMessage(PacketContainer packet, int index) {
+        WrappedChatComponent message;
+        if (MinecraftVersion.CAVES_CLIFFS_1.atOrAbove()) {
+            Optional<InternalStructure> parameters = packet.getOptionalStructures().readSafely(0);
+            if (parameters == null || !parameters.isPresent()) {
+                return null;
+            }
+            message = parameters.get().getChatComponents().readSafely(index);
+        } else {
+            message = packet.getChatComponents().readSafely(index);
+        }
+        return message != null ? message.getJson() : null;
+    }
+
+    private static void setTeamMessage(PacketContainer packet, int index, String message, boolean json) {
+        WrappedChatComponent component = WrappedChatComponent.fromJson(json ? message : MessageUtils.legacyToJson(message));
+        if (MinecraftVersion.CAVES_CLIFFS_1.atOrAbove()) {
+            Optional<InternalStructure> parameters = packet.getOptionalStructures().readSafely(0);
+            if (parameters == null || !parameters.isPresent()) {
+                return;
+            }
+            parameters.get().getChatComponents().write(index, component);
+        } else {
+            packet.getChatComponents().write(index, component);
+        }
+    }
+
     public static MessagePlace fromName(String name) {
         return Arrays.stream(VALUES)
             .filter(place -> place.name().equalsIgnoreCase(name) || place.friendlyName.equalsIgnoreCase(name))
@@ -394,6 +450,14 @@ public enum MessagePlace {
             .orElse(null);
     }
 
+    // 1.19+ no longer has game chat, messages that used to be sent there are sent to system chat instead.
+    public static MessagePlace resolve(MessagePlace place) {
+        if (place == GAME_CHAT && MinecraftVersion.WILD_UPDATE.atOrAbove()) {
+            return SYSTEM_CHAT;
+        }
+        return place;
+    }
+
     public static MessagePlace fromPacket(PacketContainer packet) {
         if (packet.getType() == PacketType.Play.Server.SYSTEM_CHAT) {
             // Hacky way to ensure action bar messages on 1.19+ return correct message place.
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.util;
+
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.reflect.accessors.Accessors;
+import com.comphenix.protocol.reflect.accessors.FieldAccessor;
+import com.comphenix.protocol.utility.MinecraftReflection;
+import com.comphenix.protocol.utility.MinecraftVersion;
+import com.comphenix.protocol.wrappers.WrappedChatComponent;
+import com.comphenix.protocol.wrappers.WrappedDataValue;
+import com.comphenix.protocol.wrappers.WrappedWatchableObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+public final class EntityMetadataUtils {
+
+    public static final int CUSTOM_NAME_INDEX = 2;
+
+    private static volatile IndexAccessor indexAccessor;
+
+    private EntityMetadataUtils() {
+        throw new UnsupportedOperationException("Cannot create instance of this class");
+    }
+
+    // Returns metadata as sent by the server, without wrapping every single value.
+    public static List<?> getMetadata(PacketContainer packet) {
+        return packet.getSpecificModifier(List.class).readSafely(0);
+    }
+
+    // Returns position of the custom name in the metadata or -1 if the metadata does not contain it.
+    // Custom names are optional chat components only since 1.9, older versions are not supported.
+    public static int findCustomName(List<?> metadata) {
+        if (metadata == null || metadata.isEmpty() || !MinecraftVersion.COMBAT_UPDATE.atOrAbove()) {
+            return -1;
+        }
+        IndexAccessor accessor = getIndexAccessor(metadata.get(0).getClass());
+        for (int position = 0; position < metadata.size(); position += 1) {
+            if (accessor.getIndex(metadata.get(position)) == CUSTOM_NAME_INDEX) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    // Returns the server's own chat component of the custom name or null if the custom name is not set.
+    public static Object getCustomNameHandle(List<?> metadata, int position) {
+        Object value;
+        if (MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
+            value = new WrappedDataValue(metadata.get(position)).getRawValue();
+        } else {
+            value = new WrappedWatchableObject(metadata.get(position)).getRawValue();
+        }
+        if (!(value instanceof Optional)) {
+            return null;
+        }
+        return ((Optional<?>) value).orElse(null);
+    }
+
+    public static String getCustomName(Object handle) {
+        return WrappedChatComponent.fromHandle(handle).getJson();
+    }
+
+    // The server sends the same metadata to every player tracking the entity, so the custom name is replaced
+    // in a copy of the metadata, which is written into the given packet (expected to be a clone of the server's one).
+    public static void setCustomName(PacketContainer packet, List<?> metadata, int position, String json) {
+        Object name = WrappedChatComponent.fromJson(json).getHandle();
+        Object item;
+        if (MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
+            WrappedDataValue value = new WrappedDataValue(metadata.get(position));
+            item = new WrappedDataValue(value.getIndex(), value.getSerializer(), Optional.of(name)).getHandle();
+        } else {
+            WrappedWatchableObject object = new WrappedWatchableObject(metadata.get(position));
+            item = new WrappedWatchableObject(object.getWatcherObject(), Optional.of(name)).getHandle();
+        }
+        List<Object> newMetadata = new ArrayList<>(metadata);
+        newMetadata.set(position, item);
+        packet.getSpecificModifier(List.class).write(0, newMetadata);
+    }
+
+    private static IndexAccessor getIndexAccessor(Class<?> itemClass) {
+        IndexAccessor accessor = indexAccessor;
+        if (accessor == null || accessor.itemClass != itemClass) {
+            accessor = new IndexAccessor(itemClass);
+            indexAccessor = accessor;
+        }
+        return accessor;
+    }
+
+    private static final class IndexAccessor {
+
+        private final Class<?> itemClass;
+        private final FieldAccessor objectAccessor;
+        private final FieldAccessor indexAccessor;
+
+        private IndexAccessor(Class<?> itemClass) {
+            this.itemClass = itemClass;
+            if (MinecraftVersion.FEATURE_PREVIEW_UPDATE.atOrAbove()) {
+                // 1.19.3+ data values store their index directly.
+                this.objectAccessor = null;
+                this.indexAccessor = Accessors.getFieldAccessor(itemClass, int.class, true);
+            } else {
+                // Older watcher items store their index in the data watcher object.
+                Class<?> objectClass = MinecraftReflection.getDataWatcherObjectClass();
+                this.objectAccessor = Accessors.getFieldAccessor(itemClass, objectClass, true);
+                this.indexAccessor = Accessors.getFieldAccessor(objectClass, int.class, true);
+            }
+        }
+
+        private int getIndex(Object item) {
+            Object handle = this.objectAccessor == null ? item : this.objectAccessor.get(item);
+            return (int) this.indexAccessor.get(handle);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.util;
+
+import dev.jaqobb.message_editor.message.MessagePlace;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Message ids only have to be unique for as long as message data stays cached,
+// so there is no need to use a cryptographically secure generator by default.
+public enum MessageIdGenerator {
+
+    // https://github.com/aventrix/jnanoid/blob/develop/src/main/java/com/aventrix/jnanoid/jnanoid/NanoIdUtils.java
+    SECURE {
+        @Override
+        public String generateId(MessagePlace place) {
+            StringBuilder idBuilder = new StringBuilder(place.getId());
+            while (true) {
+                byte[] bytes = new byte[ID_STEP];
+                SECURE_NUMBER_GENERATOR.nextBytes(bytes);
+                for (int index = 0; index < ID_STEP; index++) {
+                    int characterIndex = bytes[index] & ID_MASK;
+                    if (characterIndex < ID_CHARACTERS.length) {
+                        idBuilder.append(ID_CHARACTERS[characterIndex]);
+                        if (idBuilder.length() == ID_LENGTH) {
+                            return idBuilder.toString();
+                        }
+                    }
+                }
+            }
+        }
+    },
+    RANDOM {
+        @Override
+        public String generateId(MessagePlace place) {
+            return encode(place, ThreadLocalRandom.current().nextLong());
+        }
+    },
+    COUNTER {
+        @Override
+        public String generateId(MessagePlace place) {
+            // Each thread increments one of a few counters to avoid contention,
+            // the counter index is stored in the lowest bits to keep ids unique.
+            int stripe = (int) Thread.currentThread().getId() & (COUNTER_STRIPES - 1);
+            long value = COUNTERS.getAndIncrement(stripe);
+            return encode(place, value * COUNTER_STRIPES + stripe);
+        }
+    };
+
+    public static final MessageIdGenerator[] VALUES = values();
+
+    public static final int ID_LENGTH = 8;
+
+    // There are exactly 64 characters, so each character can be encoded using 6 bits.
+    private static final char[] ID_CHARACTERS = "_-0123456789qwertyuiopasdfghjklzxcvbnmQWERTYUIOPASDFGHJKLZXCVBNM".toCharArray();
+    @SuppressWarnings("UnnecessaryExplicitNumericCast")
+    // Explicit cast is actually necessary.
+    private static final int ID_MASK = (2 << (int) Math.floor(StrictMath.log(ID_CHARACTERS.length - 1) / StrictMath.log(2))) - 1;
+    private static final int ID_STEP = (int) Math.ceil(1.6D * ID_MASK * ID_LENGTH / ID_CHARACTERS.length);
+
+    private static final Random SECURE_NUMBER_GENERATOR = new SecureRandom();
+
+    private static final int COUNTER_STRIPES = 8;
+    private static final AtomicLongArray COUNTERS = new AtomicLongArray(COUNTER_STRIPES);
+
+    public abstract String generateId(MessagePlace place);
+
+    private static String encode(MessagePlace place, long value) {
+        String prefix = place.getId();
+        char[] id = new char[ID_LENGTH];
+        prefix.getChars(0, prefix.length(), id, 0);
+        for (int index = ID_LENGTH - 1; index >= prefix.length(); index -= 1) {
+            id[index] = ID_CHARACTERS[(int) (value & 63L)];
+            value >>>= 6;
+        }
+        return new String(id);
+    }
+
+    public static MessageIdGenerator fromName(String name) {
+        return Arrays.stream(VALUES)
+            .filter(generator -> generator.name().equalsIgnoreCase(name))
+            .findFirst()
+            .orElse(null);
+    }
+}
@@ -34,6 +34,10 @@ import com.google.gson.internal.Streams;
 import com.google.gson.stream.JsonReader;
 import dev.jaqobb.message_editor.message.MessagePlace;
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextColor;
+import net.kyori.adventure.text.format.TextDecoration;
 import net.kyori.adventure.text.serializer.gson.GsonComponentSerializer;
 import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.chat.BaseComponent;
@@ -42,10 +46,8 @@ import net.md_5.bungee.chat.ComponentSerializer;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import java.io.StringReader;
-import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 import java.util.StringJoiner;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -61,13 +63,15 @@ public final class MessageUtils {
 
     public static final String SPECIAL_REGEX_CHARACTERS = "[/<>{}()\\[\\],.+\\-*?^$\\\\|]";
 
-    private static final Random ID_NUMBER_GENERATOR = new SecureRandom();
-    private static final char[] ID_CHARACTERS = "_-0123456789qwertyuiopasdfghjklzxcvbnmQWERTYUIOPASDFGHJKLZXCVBNM".toCharArray();
-    private static final int ID_LENGTH = 8;
-    @SuppressWarnings("UnnecessaryExplicitNumericCast")
-    // Explicit cast is actually necessary.
-    private static final int ID_MASK = (2 << (int) Math.floor(StrictMath.log(ID_CHARACTERS.length - 1) / StrictMath.log(2))) - 1;
-    private static final int ID_STEP = (int) Math.ceil(1.6D * ID_MASK * ID_LENGTH / ID_CHARACTERS.length);
+    private static volatile MessageIdGenerator idGenerator = MessageIdGenerator.RANDOM;
+
+    private static final int DECORATION_OBFUSCATED = 1;
+    private static final int DECORATION_BOLD = 1 << 1;
+    private static final int DECORATION_STRIKETHROUGH = 1 << 2;
+    private static final int DECORATION_UNDERLINED = 1 << 3;
+    private static final int DECORATION_ITALIC = 1 << 4;
+
+    private static final ThreadLocal<StringBuilder> JSON_BUILDER = ThreadLocal.withInitial(StringBuilder::new);
 
     public static final boolean HEX_COLORS_SUPPORTED;
     public static final boolean ADVENTURE_PRESENT;
@@ -132,22 +136,16 @@ public final class MessageUtils {
         return result;
     }
 
-    // https://github.com/aventrix/jnanoid/blob/develop/src/main/java/com/aventrix/jnanoid/jnanoid/NanoIdUtils.java
+    public static MessageIdGenerator getIdGenerator() {
+        return idGenerator;
+    }
+
+    public static void setIdGenerator(MessageIdGenerator generator) {
+        idGenerator = generator;
+    }
+
     public static String generateId(MessagePlace place) {
-        StringBuilder idBuilder = new StringBuilder(place.getId());
-        while (true) {
-            byte[] bytes = new byte[ID_STEP];
-            ID_NUMBER_GENERATOR.nextBytes(bytes);
-            for (int index = 0; index < ID_STEP; index++) {
-                int characterIndex = bytes[index] & ID_MASK;
-                if (characterIndex < ID_CHARACTERS.length) {
-                    idBuilder.append(ID_CHARACTERS[characterIndex]);
-                    if (idBuilder.length() == ID_LENGTH) {
-                        return idBuilder.toString();
-                    }
-                }
-            }
-        }
+        return idGenerator.generateId(place);
     }
 
     public static String getLastColors(String message) {
@@ -190,27 +188,156 @@ public final class MessageUtils {
 
     public static BaseComponent[] toBaseComponents(String message) {
         TextComponent finalComponent = new TextComponent();
-        TextComponent component = new TextComponent();
+        visitLegacyComponents(message, (text, color, decorations) -> {
+            TextComponent component = new TextComponent(text.toString());
+            if (color != null) {
+                component.setColor(color);
+            }
+            if ((decorations & DECORATION_OBFUSCATED) != 0) {
+                component.setObfuscated(true);
+            }
+            if ((decorations & DECORATION_BOLD) != 0) {
+                component.setBold(true);
+            }
+            if ((decorations & DECORATION_STRIKETHROUGH) != 0) {
+                component.setStrikethrough(true);
+            }
+            if ((decorations & DECORATION_UNDERLINED) != 0) {
+                component.setUnderlined(true);
+            }
+            if ((decorations & DECORATION_ITALIC) != 0) {
+                component.setItalic(true);
+            }
+            finalComponent.addExtra(component);
+        });
+        return new BaseComponent[] {finalComponent};
+    }
+
+    // Produces JSON equivalent to serializing the result of toBaseComponents (Gson escapes some
+    // characters that are written as they are here) without creating any components.
+    public static String legacyToJson(String message) {
+        StringBuilder json = JSON_BUILDER.get();
+        json.setLength(0);
+        json.append("{\"extra\":[");
+        int emptyLength = json.length();
+        visitLegacyComponents(message, (text, color, decorations) -> {
+            if (json.length() != emptyLength) {
+                json.append(',');
+            }
+            json.append('{');
+            if (color != null) {
+                json.append("\"color\":");
+                appendJsonString(json, color.getName());
+                json.append(',');
+            }
+            if ((decorations & DECORATION_BOLD) != 0) {
+                json.append("\"bold\":true,");
+            }
+            if ((decorations & DECORATION_ITALIC) != 0) {
+                json.append("\"italic\":true,");
+            }
+            if ((decorations & DECORATION_UNDERLINED) != 0) {
+                json.append("\"underlined\":true,");
+            }
+            if ((decorations & DECORATION_STRIKETHROUGH) != 0) {
+                json.append("\"strikethrough\":true,");
+            }
+            if ((decorations & DECORATION_OBFUSCATED) != 0) {
+                json.append("\"obfuscated\":true,");
+            }
+            json.append("\"text\":");
+            appendJsonString(json, text);
+            json.append('}');
+        });
+        if (json.length() == emptyLength) {
+            return "{\"text\":\"\"}";
+        }
+        json.append("],\"text\":\"\"}");
+        return json.toString();
+    }
+
+    // Builds the same component as toBaseComponents would, but using Adventure, so messages can be written
+    // to packets that use Adventure without going through JSON. Requires Adventure to be present.
+    public static Component toAdventureComponent(String message) {
+        net.kyori.adventure.text.TextComponent.Builder finalComponent = Component.text();
+        visitLegacyComponents(message, (text, color, decorations) -> {
+            Style.Builder style = Style.style();
+            if (color != null) {
+                NamedTextColor namedColor = NamedTextColor.NAMES.value(color.getName());
+                style.color(namedColor != null ? namedColor : TextColor.fromHexString(color.getName()));
+            }
+            if ((decorations & DECORATION_OBFUSCATED) != 0) {
+                style.decoration(TextDecoration.OBFUSCATED, true);
+            }
+            if ((decorations & DECORATION_BOLD) != 0) {
+                style.decoration(TextDecoration.BOLD, true);
+            }
+            if ((decorations & DECORATION_STRIKETHROUGH) != 0) {
+                style.decoration(TextDecoration.STRIKETHROUGH, true);
+            }
+            if ((decorations & DECORATION_UNDERLINED) != 0) {
+                style.decoration(TextDecoration.UNDERLINED, true);
+            }
+            if ((decorations & DECORATION_ITALIC) != 0) {
+                style.decoration(TextDecoration.ITALIC, true);
+            }
+            finalComponent.append(Component.text(text.toString(), style.build()));
+        });
+        return finalComponent.build();
+    }
+
+    private static void appendJsonString(StringBuilder json, CharSequence value) {
+        json.append('"');
+        for (int index = 0; index < value.length(); index += 1) {
+            char character = value.charAt(index);
+            if (character == '"' || character == '\\') {
+                json.append('\\').append(character);
+            } else if (character < ' ' || character == '\u2028' || character == '\u2029') {
+                json.append("\\u");
+                String hex = Integer.toHexString(character);
+                for (int padding = hex.length(); padding < 4; padding += 1) {
+                    json.append('0');
+                }
+                json.append(hex);
+            } else {
+                json.append(character);
+            }
+        }
+        json.append('"');
+    }
+
+    // Splits legacy text into components. Text is collected in a builder and passed once per component,
+    // building it character by character made converting long messages quadratic.
+    private static void visitLegacyComponents(String message, LegacyComponentVisitor visitor) {
+        StringBuilder componentText = new StringBuilder();
+        ChatColor componentColor = null;
+        int componentDecorations = 0;
         ChatColor componentNewColor = null;
         boolean firstColor = true;
-        for (int index = 0; index < message.length(); index += 1) {
+        int length = message.length();
+        for (int index = 0; index < length; index += 1) {
             boolean makeComponent = false;
             char character = message.charAt(index);
-            if (index == message.length() - 1) {
+            if (index == length - 1) {
                 makeComponent = true;
-                component.setText(component.getText() + character);
+                componentText.append(character);
             } else if (character != '§') {
-                component.setText(component.getText() + character);
+                int end = message.indexOf('§', index + 1);
+                if (end == -1) {
+                    end = length - 1;
+                }
+                componentText.append(message, index, end);
+                index = end - 1;
             } else {
                 char hexColorCharacter = message.charAt(index + 1);
                 if ((hexColorCharacter == 'x' || hexColorCharacter == 'X') && HEX_COLORS_SUPPORTED) {
-                    String hexColor = "";
+                    StringBuilder hexColor = new StringBuilder(7).append('#');
                     for (int j = 3; j <= 13; j += 2) {
-                        hexColor += message.charAt(index + j);
+                        hexColor.append(message.charAt(index + j));
                     }
                     try {
                         index += 13;
-                        component.setColor(ChatColor.of("#" + hexColor));
+                        componentColor = ChatColor.of(hexColor.toString());
                         firstColor = false;
                         continue;
                     } catch (IllegalArgumentException ignored) {
@@ -219,19 +346,21 @@ public final class MessageUtils {
                 ChatColor color = ChatColor.getByChar(message.charAt(index + 1));
                 if (color != null) {
                     index += 1;
-                    if ((color != component.getColor() && firstColor) || color == ChatColor.MAGIC || color == ChatColor.BOLD || color == ChatColor.STRIKETHROUGH || color == ChatColor.UNDERLINE || color == ChatColor.ITALIC) {
+                    // Components without a color report white as their color.
+                    ChatColor currentColor = componentColor != null ? componentColor : ChatColor.WHITE;
+                    if ((color != currentColor && firstColor) || color == ChatColor.MAGIC || color == ChatColor.BOLD || color == ChatColor.STRIKETHROUGH || color == ChatColor.UNDERLINE || color == ChatColor.ITALIC) {
                         if (color == ChatColor.MAGIC) {
-                            component.setObfuscated(true);
+                            componentDecorations |= DECORATION_OBFUSCATED;
                         } else if (color == ChatColor.BOLD) {
-                            component.setBold(true);
+                            componentDecorations |= DECORATION_BOLD;
                         } else if (color == ChatColor.STRIKETHROUGH) {
-                            component.setStrikethrough(true);
+                            componentDecorations |= DECORATION_STRIKETHROUGH;
                         } else if (color == ChatColor.UNDERLINE) {
-                            component.setUnderlined(true);
+                            componentDecorations |= DECORATION_UNDERLINED;
                         } else if (color == ChatColor.ITALIC) {
-                            component.setItalic(true);
+                            componentDecorations |= DECORATION_ITALIC;
                         } else {
-                            component.setColor(color);
+                            componentColor = color;
                             firstColor = false;
                         }
                     } else {
@@ -239,14 +368,15 @@ public final class MessageUtils {
                         componentNewColor = color;
                     }
                 } else {
-                    component.setText(component.getText() + character);
+                    componentText.append(character);
                 }
             }
             if (makeComponent) {
-                finalComponent.addExtra(component);
-                component = new TextComponent();
+                visitor.visit(componentText, componentColor, componentDecorations);
+                componentText.setLength(0);
+                componentDecorations = 0;
+                componentColor = componentNewColor;
                 if (componentNewColor != null) {
-                    component.setColor(componentNewColor);
                     componentNewColor = null;
                     firstColor = false;
                 } else {
@@ -254,7 +384,6 @@ public final class MessageUtils {
                 }
             }
         }
-        return new BaseComponent[] {finalComponent};
     }
 
     // Using ComponentSerializer#toString when the amount of components is greater than 1
@@ -274,7 +403,22 @@ public final class MessageUtils {
         }
     }
 
+    // Mirrors what parsing the message with Gson (in strict mode) would accept without building any JSON tree.
+    // Just like Gson, only the first JSON value is validated and anything after it is ignored.
     public static boolean isJson(String message) {
+        int index = skipJsonWhitespace(message, 0);
+        if (index == message.length()) {
+            // Gson treats empty input as JSON null.
+            return true;
+        }
+        int end = skipJsonValue(message, index);
+        if (end == -2) {
+            return isJsonParsed(message);
+        }
+        return end != -1;
+    }
+
+    private static boolean isJsonParsed(String message) {
         try {
             // Streams is being used instead of JsonParser
             // because JsonParser parses the string in lenient mode
@@ -286,6 +430,227 @@ public final class MessageUtils {
         }
     }
 
+    // Returns the index after the JSON value starting at the given index, -1 if the value is malformed
+    // or -2 if the value is nested too deeply to be validated without allocating.
+    private static int skipJsonValue(String json, int index) {
+        int length = json.length();
+        // Each bit tells whether the corresponding nesting level is an object (1) or an array (0).
+        long scopes = 0L;
+        int depth = 0;
+        while (true) {
+            if (index >= length) {
+                return -1;
+            }
+            char character = json.charAt(index);
+            boolean valueEnded = true;
+            if (character == '{' || character == '[') {
+                if (depth == Long.SIZE) {
+                    return -2;
+                }
+                boolean object = character == '{';
+                scopes = (scopes << 1) | (object ? 1L : 0L);
+                depth += 1;
+                index = skipJsonWhitespace(json, index + 1);
+                if (index >= length) {
+                    return -1;
+                }
+                if (json.charAt(index) == (object ? '}' : ']')) {
+                    scopes >>>= 1;
+                    depth -= 1;
+                    index += 1;
+                } else if (object) {
+                    index = skipJsonName(json, index);
+                    valueEnded = false;
+                } else {
+                    valueEnded = false;
+                }
+            } else if (character == '"') {
+                index = skipJsonString(json, index);
+            } else {
+                index = skipJsonLiteral(json, index);
+            }
+            if (index == -1) {
+                return -1;
+            }
+            while (valueEnded) {
+                if (depth == 0) {
+                    return index;
+                }
+                index = skipJsonWhitespace(json, index);
+                if (index >= length) {
+                    return -1;
+                }
+                boolean object = (scopes & 1L) == 1L;
+                character = json.charAt(index);
+                if (character == ',') {
+                    index = skipJsonWhitespace(json, index + 1);
+                    if (object) {
+                        index = skipJsonName(json, index);
+                        if (index == -1) {
+                            return -1;
+                        }
+                    }
+                    valueEnded = false;
+                } else if (character == (object ? '}' : ']')) {
+                    scopes >>>= 1;
+                    depth -= 1;
+                    index += 1;
+                } else {
+                    return -1;
+                }
+            }
+        }
+    }
+
+    // Skips the object member name and the following colon, returns the index of the member value.
+    private static int skipJsonName(String json, int index) {
+        if (index >= json.length() || json.charAt(index) != '"') {
+            return -1;
+        }
+        index = skipJsonString(json, index);
+        if (index == -1) {
+            return -1;
+        }
+        index = skipJsonWhitespace(json, index);
+        if (index >= json.length() || json.charAt(index) != ':') {
+            return -1;
+        }
+        return skipJsonWhitespace(json, index + 1);
+    }
+
+    private static int skipJsonString(String json, int index) {
+        int length = json.length();
+        for (int current = index + 1; current < length; current += 1) {
+            char character = json.charAt(current);
+            if (character == '"') {
+                return current + 1;
+            }
+            if (character != '\\') {
+                continue;
+            }
+            current += 1;
+            if (current >= length) {
+                return -1;
+            }
+            char escaped = json.charAt(current);
+            if (escaped == 'u') {
+                if (current + 4 >= length) {
+                    return -1;
+                }
+                for (int hexIndex = current + 1; hexIndex <= current + 4; hexIndex += 1) {
+                    if (Character.digit(json.charAt(hexIndex), 16) == -1) {
+                        return -1;
+                    }
+                }
+                current += 4;
+            } else if ("tbnrf\n'\"\\/".indexOf(escaped) == -1) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // Skips true, false, null (case-insensitively, like Gson) or a number.
+    private static int skipJsonLiteral(String json, int index) {
+        int end = skipJsonKeyword(json, index, "true");
+        if (end == -1) {
+            end = skipJsonKeyword(json, index, "false");
+        }
+        if (end == -1) {
+            end = skipJsonKeyword(json, index, "null");
+        }
+        if (end == -1) {
+            end = skipJsonNumber(json, index);
+        }
+        if (end == -1 || end == json.length() || !isJsonLiteralCharacter(json.charAt(end))) {
+            return end;
+        }
+        return -1;
+    }
+
+    private static int skipJsonKeyword(String json, int index, String keyword) {
+        if (!json.regionMatches(true, index, keyword, 0, keyword.length())) {
+            return -1;
+        }
+        return index + keyword.length();
+    }
+
+    private static int skipJsonNumber(String json, int index) {
+        int length = json.length();
+        int current = index;
+        if (current < length && json.charAt(current) == '-') {
+            current += 1;
+        }
+        int digitsStart = current;
+        while (current < length && isJsonDigit(json.charAt(current))) {
+            current += 1;
+        }
+        if (current == digitsStart || (json.charAt(digitsStart) == '0' && current - digitsStart > 1)) {
+            return -1;
+        }
+        if (current < length && json.charAt(current) == '.') {
+            current += 1;
+            int fractionStart = current;
+            while (current < length && isJsonDigit(json.charAt(current))) {
+                current += 1;
+            }
+            if (current == fractionStart) {
+                return -1;
+            }
+        }
+        if (current < length && (json.charAt(current) == 'e' || json.charAt(current) == 'E')) {
+            current += 1;
+            if (current < length && (json.charAt(current) == '+' || json.charAt(current) == '-')) {
+                current += 1;
+            }
+            int exponentStart = current;
+            while (current < length && isJsonDigit(json.charAt(current))) {
+                current += 1;
+            }
+            if (current == exponentStart) {
+                return -1;
+            }
+        }
+        return current;
+    }
+
+    private static boolean isJsonDigit(char character) {
+        return character >= '0' && character <= '9';
+    }
+
+    // Characters that cannot directly follow a literal (Gson either continues reading them as part of it
+    // or rejects them in strict mode).
+    private static boolean isJsonLiteralCharacter(char character) {
+        switch (character) {
+            case '{':
+            case '}':
+            case '[':
+            case ']':
+            case ':':
+            case ',':
+            case ' ':
+            case '\t':
+            case '\f':
+            case '\r':
+            case '\n':
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private static int skipJsonWhitespace(String json, int index) {
+        int length = json.length();
+        while (index < length) {
+            char character = json.charAt(index);
+            if (character != ' ' && character != '\t' && character != '\n' && character != '\r') {
+                return index;
+            }
+            index += 1;
+        }
+        return index;
+    }
+
     public static void logMessage(Logger logger, MessagePlace place, Player player, String messageId, boolean json, String message) {
         logger.log(Level.INFO, "Place: " + place.getFriendlyName() + " (" + place.name() + ")");
         logger.log(Level.INFO, "Player: " + player.getName());
@@ -337,7 +702,7 @@ public final class MessageUtils {
                 if (json) {
                     packet.getChatComponents().write(0, WrappedChatComponent.fromJson(message));
                 } else {
-                    packet.getChatComponents().write(0, WrappedChatComponent.fromJson(toJson(toBaseComponents(message), true)));
+                    packet.getChatComponents().write(0, WrappedChatComponent.fromJson(legacyToJson(message)));
                 }
             } else if (packet.getSpecificModifier(BaseComponent[].class).size() == 1) {
                 if (json) {
@@ -351,7 +716,11 @@ public final class MessageUtils {
                 // Additional check for safety in case adventure is detected but packets do not use it.
                 // If it is not used, fall back to the general method.
                 if (packet.getSpecificModifier(Component.class).readSafely(0) != null) {
-                    packet.getSpecificModifier(Component.class).write(0, GsonComponentSerializer.gson().deserialize(message));
+                    if (json) {
+                        packet.getSpecificModifier(Component.class).write(0, GsonComponentSerializer.gson().deserialize(message));
+                    } else {
+                        packet.getSpecificModifier(Component.class).write(0, toAdventureComponent(message));
+                    }
                     return;
                 }
             }
@@ -363,9 +732,9 @@ public final class MessageUtils {
                 }
             } else {
                 if (MinecraftVersion.v1_20_4.atOrAbove()) {
-                    packet.getChatComponents().write(0, WrappedChatComponent.fromJson(toJson(toBaseComponents(message), true)));
+                    packet.getChatComponents().write(0, WrappedChatComponent.fromJson(legacyToJson(message)));
                 } else {
-                    packet.getStrings().write(0, toJson(toBaseComponents(message), true));
+                    packet.getStrings().write(0, legacyToJson(message));
                 }
             }
         }
@@ -388,4 +757,10 @@ public final class MessageUtils {
             return false;
         }
     }
+
+    @FunctionalInterface
+    private interface LegacyComponentVisitor {
+
+        void visit(CharSequence text, ChatColor color, int decorations);
+    }
 }
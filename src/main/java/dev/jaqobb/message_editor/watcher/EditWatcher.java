@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.watcher;
+
+import dev.jaqobb.message_editor.MessageEditorPlugin;
+import dev.jaqobb.message_editor.message.MessageEdit;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+// Watches the 'edits' directory and applies edits of files that were created, modified or deleted,
+// without reloading edits of the other files.
+public final class EditWatcher implements Runnable {
+
+    // Editors tend to write a file in several steps, so events are collected for a moment before being applied.
+    private static final long SETTLE_DELAY = 250L;
+
+    private final MessageEditorPlugin plugin;
+    private final File directory;
+    private final WatchService watchService;
+    private Thread thread;
+
+    public EditWatcher(MessageEditorPlugin plugin, File directory) throws IOException {
+        this.plugin = plugin;
+        this.directory = directory;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.directory.toPath().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    public void start() {
+        this.thread = new Thread(this, "MessageEditor Edit Watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public void stop() {
+        try {
+            this.watchService.close();
+        } catch (IOException exception) {
+            this.plugin.getLogger().log(Level.WARNING, "Could not stop edit watcher.", exception);
+        }
+        if (this.thread != null) {
+            this.thread.interrupt();
+            this.thread = null;
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = this.watchService.take();
+                Thread.sleep(SETTLE_DELAY);
+                try {
+                    if (!this.processEvents(key)) {
+                        this.plugin.getLogger().log(Level.WARNING, "The 'edits' directory is no longer accessible, edit watcher has been stopped.");
+                        return;
+                    }
+                } catch (ClosedWatchServiceException exception) {
+                    throw exception;
+                } catch (RuntimeException exception) {
+                    // A single failed update must not stop the watcher, later changes are still applied.
+                    this.plugin.getLogger().log(Level.WARNING, "Could not apply changed message edits.", exception);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException exception) {
+            // Edit watcher has been stopped.
+        }
+    }
+
+    // Returns false if the 'edits' directory can no longer be watched.
+    private boolean processEvents(WatchKey key) {
+        Set<String> changedFiles = new LinkedHashSet<>();
+        boolean overflow = false;
+        while (key != null) {
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflow = true;
+                    continue;
+                }
+                String name = ((Path) event.context()).getFileName().toString();
+                if (MessageEditorPlugin.isMessageEditFile(name)) {
+                    changedFiles.add(name);
+                }
+            }
+            if (!key.reset()) {
+                return false;
+            }
+            key = this.watchService.poll();
+        }
+        if (overflow) {
+            // Some events were lost, so there is no telling which files have changed.
+            this.plugin.reloadMessageEdits().join();
+            this.plugin.getLogger().log(Level.INFO, "Reloaded all message edits.");
+            return true;
+        }
+        this.applyChanges(changedFiles);
+        return true;
+    }
+
+    private void applyChanges(Set<String> changedFiles) {
+        if (changedFiles.isEmpty()) {
+            return;
+        }
+        Map<String, MessageEdit> changedFileEdits = new LinkedHashMap<>();
+        for (String name : changedFiles) {
+            File file = new File(this.directory, name);
+            if (!file.exists()) {
+                changedFileEdits.put(name, null);
+                continue;
+            }
+            // A file that cannot be loaded (for example because it is still being written) keeps its previous edit.
+            MessageEdit edit = this.plugin.loadMessageEdit(file);
+            if (edit != null) {
+                changedFileEdits.put(name, edit);
+            }
+        }
+        int updatedFiles = this.plugin.updateMessageEdits(changedFileEdits);
+        if (updatedFiles > 0) {
+            this.plugin.getLogger().log(Level.INFO, "Applied message edits from " + updatedFiles + " changed file(s).");
+        }
+    }
+}
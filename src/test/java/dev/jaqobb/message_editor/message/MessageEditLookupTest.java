@@ -0,0 +1,100 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.message;
+
+import org.junit.jupiter.api.Test;
+import java.util.regex.Pattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class MessageEditLookupTest {
+
+    // Pattern and message pairs that java.util.regex matches, the extracted literals must never reject them.
+    private static final String[][] MATCHING_CASES = {
+        {"[]E]", "E"},
+        {"[]E]", "]"},
+        {"[^]]x", "ax"},
+        {"[^]a]b", "cb"},
+        {"[]abc]d", "]d"},
+        {"[]abc]d", "ad"},
+        {"[a[]b]]c", "]c"},
+        {"[a[]b]]c", "bc"},
+        {"[\\]]x", "]x"},
+        {"\\[]E]", "[]E]"},
+        {"Hello [a-z]+ world", "Hello abc world"},
+        {"\\QHi\\E!+", "Hi!!!"},
+        {"(?:ab)+c", "ababc"},
+        {"a{2}b", "aab"},
+        {"ab?c", "ac"},
+        {"price: \\d+ coins", "price: 10 coins"},
+        {"[a-z&&[^b]]+ end", "acd end"},
+        {"\\p{L}+: (.*)", "Player: hello"}
+    };
+
+    @Test
+    void extractedLiteralsAreRequiredByMatchingMessages() {
+        for (String[] testCase : MATCHING_CASES) {
+            String pattern = testCase[0];
+            String message = testCase[1];
+            assertTrue(Pattern.matches(pattern, message), () -> "Test case is wrong: " + pattern + " does not match " + message);
+            String[] literals = MessageEditLookup.extractLiterals(pattern);
+            assertTrue(message.startsWith(literals[0]), () -> "Prefix '" + literals[0] + "' of " + pattern + " rejects " + message);
+            assertTrue(message.contains(literals[1]), () -> "Literal '" + literals[1] + "' of " + pattern + " rejects " + message);
+        }
+    }
+
+    @Test
+    void lookupAgreesWithRegex() {
+        String[] messages = {"E", "]", "ax", "]x", "]d", "ad", "]c", "bc", "Hello abc world", "Hi!!!", "aab", "price: 10 coins", "nothing"};
+        for (String[] testCase : MATCHING_CASES) {
+            MessageEdit edit = new MessageEdit(testCase[0], null, "edited", null);
+            MessageEditLookup lookup = new MessageEditLookup(new MessageEdit[] {edit}, 0L);
+            for (String message : messages) {
+                boolean expected = Pattern.matches(testCase[0], message);
+                assertEquals(expected, lookup.find(message) != null, () -> testCase[0] + " against " + message);
+            }
+        }
+    }
+
+    @Test
+    void classStartingWithClosingBracketIsNotALiteral() {
+        String[] literals = MessageEditLookup.extractLiterals("[]E]");
+        assertEquals("", literals[0]);
+        assertEquals("", literals[1]);
+        literals = MessageEditLookup.extractLiterals("[^]]x");
+        assertEquals("", literals[0]);
+        assertEquals("x", literals[1]);
+    }
+
+    @Test
+    void unparsablePatternsAreAlwaysChecked() {
+        String[] literals = MessageEditLookup.extractLiterals("abc[");
+        assertEquals("", literals[0]);
+        assertEquals("", literals[1]);
+        literals = MessageEditLookup.extractLiterals("abc\\");
+        assertEquals("", literals[0]);
+        assertEquals("", literals[1]);
+    }
+}
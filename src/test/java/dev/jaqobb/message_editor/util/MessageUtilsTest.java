@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2020-2023 Jakub Zagórski (jaqobb)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.jaqobb.message_editor.util;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.internal.Streams;
+import com.google.gson.stream.JsonReader;
+import org.junit.jupiter.api.Test;
+import java.io.StringReader;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+final class MessageUtilsTest {
+
+    private static final String[] CORPUS = {
+        "",
+        " ",
+        "Hello world",
+        "&aHello &bworld",
+        "{}",
+        "[]",
+        " { } ",
+        "{\"text\":\"Hello\"}",
+        "{\"text\":\"Hello\",\"color\":\"red\",\"bold\":true,\"extra\":[{\"text\":\"!\"}]}",
+        "{\"text\":\"Hello\"} trailing",
+        "{\"text\":\"Hello\",}",
+        "{\"text\" \"Hello\"}",
+        "{text:\"Hello\"}",
+        "{'text':'Hello'}",
+        "[\"a\",\"b\",]",
+        "[1,2,3]",
+        "[1 2]",
+        "[01]",
+        "[-0]",
+        "[1.]",
+        "[1.5e10]",
+        "[1E+2]",
+        "[1e]",
+        "[-]",
+        "true",
+        "TRUE",
+        "True ",
+        "null",
+        "nul",
+        "truex",
+        "123",
+        "123abc",
+        "\"string\"",
+        "\"unterminated",
+        "\"escape \\n \\t \\\" \\\\ \\/ \\u00e9\"",
+        "\"bad escape \\x\"",
+        "\"short unicode \\u12\"",
+        "\"single quote escape \\'\"",
+        "{\"a\":{\"b\":{\"c\":[[[]]]}}}",
+        "{\"a\":1}}",
+        "[[]",
+        "[]]",
+        "{\"a\":1 \"b\":2}",
+        "{\"a\":1,\"b\":2}",
+        "[\t\n\r 1 ]",
+        "[\f1]",
+        "{\"a\":1}{\"b\":2}",
+        "#comment",
+        "// comment",
+        "=",
+        "[;]",
+        "§aLegacy §lmessage"
+    };
+
+    private static final String[] LEGACY_CORPUS = {
+        "",
+        "Hello world",
+        "§aHello §bworld",
+        "§x§4§6§b§4§5§fHex §X§F§F§0§0§A§Acolors",
+        "§lBold §rreset §atext",
+        "§r§aReset first",
+        "§a§l§n§oStacked §mdecorations",
+        "§Aupper §Rcase",
+        "§zunknown §code",
+        "Trailing §",
+        "§",
+        "§a",
+        "<tag> & 'quotes' = \"double\" \\ backslash",
+        "Tabs\tand\nnew lines\u2028",
+        "Unicode ą ę 日本 \uD83D\uDE00"
+    };
+
+    @Test
+    void isJsonAgreesWithGsonOnCorpus() {
+        for (String message : CORPUS) {
+            assertEquals(isJsonParsed(message), MessageUtils.isJson(message), () -> "Disagreement on: " + message);
+        }
+    }
+
+    @Test
+    void isJsonAgreesWithGsonOnRandomInput() {
+        String alphabet = "{}[]:,\"\\ \t\n-+.0123456789eEtrufalsnxu'/ab";
+        Random random = new Random(8376L);
+        for (int iteration = 0; iteration < 200000; iteration += 1) {
+            int length = random.nextInt(16);
+            StringBuilder builder = new StringBuilder(length);
+            for (int index = 0; index < length; index += 1) {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String message = builder.toString();
+            assertEquals(isJsonParsed(message), MessageUtils.isJson(message), () -> "Disagreement on: " + message);
+        }
+    }
+
+    @Test
+    void deeplyNestedValuesFallBackToGson() {
+        for (int depth : new int[] {63, 64, 65, 100, 200}) {
+            String valid = repeat("[", depth) + repeat("]", depth);
+            String invalid = repeat("[", depth) + repeat("]", depth - 1);
+            String objects = repeat("{\"a\":", depth) + "1" + repeat("}", depth);
+            assertTrue(MessageUtils.isJson(valid), "Valid array nested " + depth + " levels deep");
+            assertFalse(MessageUtils.isJson(invalid), "Unclosed array nested " + depth + " levels deep");
+            assertTrue(MessageUtils.isJson(objects), "Valid object nested " + depth + " levels deep");
+            assertEquals(isJsonParsed(valid), MessageUtils.isJson(valid));
+            assertEquals(isJsonParsed(invalid), MessageUtils.isJson(invalid));
+            assertEquals(isJsonParsed(objects), MessageUtils.isJson(objects));
+        }
+    }
+
+    @Test
+    void legacyToJsonIsEquivalentToSerializedComponentsOnCorpus() {
+        for (String message : LEGACY_CORPUS) {
+            assertLegacyToJsonEquivalent(message);
+        }
+    }
+
+    @Test
+    void legacyToJsonIsEquivalentToSerializedComponentsOnRandomInput() {
+        // Hex colors are always complete and text never starts with an x, as truncated hex colors are not supported.
+        String[] tokens = {"§0", "§7", "§a", "§f", "§A", "§k", "§l", "§m", "§n", "§o", "§r", "§R", "§z", "§", "§x§4§6§b§4§5§f", "§X§0§0§F§F§a§A", " ", "a", "Hello", "<>&='", "\"", "\\", "\n", "ą日"};
+        Random random = new Random(8376L);
+        for (int iteration = 0; iteration < 20000; iteration += 1) {
+            int length = random.nextInt(12);
+            StringBuilder builder = new StringBuilder();
+            for (int index = 0; index < length; index += 1) {
+                builder.append(tokens[random.nextInt(tokens.length)]);
+            }
+            assertLegacyToJsonEquivalent(builder.toString());
+        }
+    }
+
+    private static void assertLegacyToJsonEquivalent(String message) {
+        String expected = MessageUtils.toJson(MessageUtils.toBaseComponents(message), true);
+        String actual = MessageUtils.legacyToJson(message);
+        assertEquals(JsonParser.parseString(expected), JsonParser.parseString(actual), () -> "Disagreement on: " + message + "\nExpected: " + expected + "\nActual: " + actual);
+    }
+
+    private static boolean isJsonParsed(String message) {
+        try {
+            Streams.parse(new JsonReader(new StringReader(message)));
+            return true;
+        } catch (JsonParseException exception) {
+            return false;
+        }
+    }
+
+    private static String repeat(String string, int count) {
+        StringBuilder builder = new StringBuilder(string.length() * count);
+        for (int index = 0; index < count; index += 1) {
+            builder.append(string);
+        }
+        return builder.toString();
+    }
+}